@@ -0,0 +1,16 @@
+package com.example.demo.config;
+
+import java.security.Principal;
+
+/**
+ * Principal set by {@link JwtAuthFilter}. Carries the user id from the token so request
+ * handlers do not have to look the user up by email; {@link #getName()} stays the email,
+ * so {@code Authentication.getName()} keeps working.
+ */
+public record AuthenticatedUser(Long id, String email, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
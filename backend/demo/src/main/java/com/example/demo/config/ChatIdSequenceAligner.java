@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import com.example.demo.model.Chat;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chat ids used to come from AUTO_INCREMENT. MySQL has no sequences, so Hibernate keeps
+ * the pooled {@code chats_seq} in a one-row table, which starts at 1 when it is first
+ * created; this moves it past the ids already in {@code chats} so new blocks cannot clash.
+ * Runs after the entity manager factory, i.e. after any schema update, and is a no-op once
+ * the sequence is ahead.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChatIdSequenceAligner {
+
+    private final JdbcTemplate jdbcTemplate;
+    // Only injected so this runs after Hibernate has created the chats_seq table
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void alignWithExistingChats() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database)) {
+            return;
+        }
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE chats_seq SET next_val = (SELECT COALESCE(MAX(id), 0) + ? FROM chats) "
+                            + "WHERE next_val <= (SELECT COALESCE(MAX(id), 0) + ? FROM chats)",
+                    Chat.ID_BLOCK_SIZE + 1, Chat.ID_BLOCK_SIZE);
+            if (updated > 0) {
+                log.info("Moved chats_seq past the existing chat ids");
+            }
+        } catch (DataAccessException e) {
+            log.error("❌ Could not align chats_seq with existing chats: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for streamed chat replies. With {@code spring.threads.virtual.enabled=true}
+ * every stream gets its own virtual thread, since the work is almost entirely waiting on
+ * the upstream; otherwise a bounded platform-thread pool is used.
+ */
+@Configuration
+public class ChatStreamConfig {
+
+    @Value("${chat.stream.pool-size:32}")
+    private int poolSize;
+
+    @Value("${chat.stream.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${chat.stream.max-concurrent:1000}")
+    private int maxConcurrent;
+
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public TaskExecutor chatStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("chat-stream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "chatStreamExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public TaskExecutor virtualChatStreamExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("chat-stream-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrent);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.demo.config;
 
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.JwtClaims;
 import com.example.demo.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,13 +18,22 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Collections;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
     private final JwtService jwtService;
+    private final UserRepository userRepository;
+
+    /** Static bearer token Prometheus scrapes with; empty means only admins can scrape. */
+    @Value("${management.prometheus.scrape-token:}")
+    private String scrapeToken = "";
 
     @Override
     protected void doFilterInternal(
@@ -33,20 +46,24 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
 
-            try {
-                if (jwtService.validateToken(token)) {
-                    String email = jwtService.extractEmail(token);
-                    String role = jwtService.extractRole(token);
+            if (isScrape(request, token)) {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        "prometheus", null, Collections.singletonList(new SimpleGrantedAuthority("METRICS"))));
+                filterChain.doFilter(request, response);
+                return;
+            }
 
+            try {
+                jwtService.verify(token).map(this::toPrincipal).ifPresent(principal -> {
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
-                                    email,
+                                    principal,
                                     null,
-                                    Collections.singletonList(new SimpleGrantedAuthority(role))
+                                    Collections.singletonList(new SimpleGrantedAuthority(principal.role()))
                             );
 
                     SecurityContextHolder.getContext().setAuthentication(authentication);
-                }
+                });
             } catch (Exception e) {
                 // Invalid token - continue without authentication
                 logger.error("JWT validation failed: " + e.getMessage());
@@ -55,4 +72,21 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private boolean isScrape(HttpServletRequest request, String token) {
+        return !scrapeToken.isEmpty()
+                && PROMETHEUS_PATH.equals(request.getRequestURI())
+                && MessageDigest.isEqual(scrapeToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private AuthenticatedUser toPrincipal(JwtClaims claims) {
+        if (claims.userId() != null) {
+            return new AuthenticatedUser(claims.userId(), claims.email(), claims.role());
+        }
+        // Token issued before the user id was added to it; resolve it the old way
+        return userRepository.findByEmail(claims.email())
+                .map(User::getId)
+                .map(id -> new AuthenticatedUser(id, claims.email(), claims.role()))
+                .orElse(null);
+    }
+}
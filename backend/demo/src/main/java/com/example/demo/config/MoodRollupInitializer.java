@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import com.example.demo.service.MoodRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * The mood rollup tables are created empty, so on a database that already has chats the
+ * trend and analytics endpoints would show nothing. At startup this fills them from the
+ * chats table when they are empty and chats exist, then lets reads use them. If the
+ * rebuild fails, reads keep aggregating the chats table until an admin rebuild succeeds.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MoodRollupInitializer implements ApplicationRunner {
+
+    private final MoodRollupService moodRollupService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            if (moodRollupService.needsRebuild()) {
+                log.info("📊 Mood rollups are empty but chats exist, rebuilding them");
+                moodRollupService.rebuild();
+            }
+            moodRollupService.markReady();
+        } catch (DataAccessException e) {
+            log.error("❌ Could not rebuild the mood rollups, serving trends from the chats table: {}", e.getMessage());
+        }
+    }
+}
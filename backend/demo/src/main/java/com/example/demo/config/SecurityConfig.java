@@ -1,5 +1,6 @@
 package com.example.demo.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -36,7 +37,13 @@ public class SecurityConfig {
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Async replies (chat send, streams, exports) were authorized on the
+                        // original dispatch; the token is not re-read when the result is written
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**", "/api/chat/anonymous").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Pipeline metrics: the scrape token (management.prometheus.scrape-token) or an admin
+                        .requestMatchers("/actuator/prometheus").hasAnyAuthority("METRICS", "ADMIN")
                         .requestMatchers("/api/admin/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
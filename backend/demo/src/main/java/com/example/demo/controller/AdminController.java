@@ -1,14 +1,25 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.AdminChatRow;
 import com.example.demo.dto.ApiResponse;
-import com.example.demo.model.Chat;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.MoodTrendResponse;
 import com.example.demo.model.User;
 import com.example.demo.service.AdminService;
+import com.example.demo.service.ChatExportService;
+import com.example.demo.service.ChatFilter;
+import com.example.demo.service.MoodScoreBackfillService;
+import com.example.demo.service.MoodTrendService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @RestController
@@ -18,17 +29,66 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
+    private final MoodScoreBackfillService moodScoreBackfillService;
+    private final MoodTrendService moodTrendService;
+    private final ChatExportService chatExportService;
 
     @GetMapping("/users")
-    public ResponseEntity<ApiResponse<List<User>>> getAllUsers() {
-        List<User> users = adminService.getAllUsers();
-        return ResponseEntity.ok(ApiResponse.success(users));
+    public ResponseEntity<ApiResponse<CursorPage<User>>> getUsers(
+            @RequestParam(required = false) User.Role role,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(adminService.getUsers(role, email, cursor, size)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
     }
 
     @GetMapping("/chats")
-    public ResponseEntity<ApiResponse<List<Chat>>> getAllChats() {
-        List<Chat> chats = adminService.getAllChats();
-        return ResponseEntity.ok(ApiResponse.success(chats));
+    public ResponseEntity<ApiResponse<CursorPage<AdminChatRow>>> getChats(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String sentiment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            ChatFilter filter = new ChatFilter(userId, sentiment, from, to);
+            return ResponseEntity.ok(ApiResponse.success(adminService.getChats(filter, cursor, size)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Streams every matching chat; the body is written while the rows are read, so the
+     * export is never held in memory.
+     */
+    @GetMapping("/chats/export")
+    public ResponseEntity<?> exportChats(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String sentiment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ChatExportService.Format exportFormat;
+        try {
+            exportFormat = ChatExportService.Format.parse(format);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+
+        ChatFilter filter = new ChatFilter(userId, sentiment, from, to);
+        StreamingResponseBody body = out -> chatExportService.export(filter, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"chats." + exportFormat.extension + "\"")
+                .body(body);
     }
 
     @DeleteMapping("/users/{userId}")
@@ -64,4 +124,90 @@ public class AdminController {
         Map<String, Object> analytics = adminService.getUserAnalytics(userId);
         return ResponseEntity.ok(ApiResponse.success(analytics));
     }
+
+    @GetMapping("/analytics/trends")
+    public ResponseEntity<ApiResponse<MoodTrendResponse>> getMoodTrend(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(moodTrendService.getGlobalTrend(granularity, from, to)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/analytics/user/{userId}/trends")
+    public ResponseEntity<ApiResponse<MoodTrendResponse>> getUserMoodTrend(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(moodTrendService.getUserTrend(userId, granularity, from, to)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/analytics/rollups/rebuild")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> rebuildMoodRollups() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(adminService.rebuildMoodRollups()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/upstream/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getUpstreamStats() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getUpstreamStats()));
+    }
+
+    @GetMapping("/auth/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAuthStats() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getAuthStats()));
+    }
+
+    @GetMapping("/conversation-memory/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getConversationMemoryStats() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getConversationMemoryStats()));
+    }
+
+    @GetMapping("/persistence/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getPersistenceStats() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getPersistenceStats()));
+    }
+
+    @GetMapping("/prompts")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getPromptTemplates() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getPromptTemplates()));
+    }
+
+    @PostMapping("/prompts/reload")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> reloadPromptTemplates() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(adminService.reloadPromptTemplates()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/mood-scores/backfill")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> startMoodScoreBackfill() {
+        if (!moodScoreBackfillService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("Backfill already running"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(moodScoreBackfillService.getStatus()));
+    }
+
+    @GetMapping("/mood-scores/backfill")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMoodScoreBackfillStatus() {
+        return ResponseEntity.ok(ApiResponse.success(moodScoreBackfillService.getStatus()));
+    }
 }
\ No newline at end of file
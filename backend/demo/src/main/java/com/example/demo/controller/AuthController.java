@@ -1,14 +1,14 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.*;
-import com.example.demo.model.User;
-import com.example.demo.repository.UserRepository;
 import com.example.demo.service.AuthService;
-import com.example.demo.service.JwtService;
+import com.example.demo.service.TooManyRequestsException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -18,15 +18,15 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
-    private final UserRepository userRepository;  // Add this
-    private final BCryptPasswordEncoder passwordEncoder;  // Add this
-    private final JwtService jwtService;
 
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<AuthResponse>> register(@Valid @RequestBody RegisterRequest request) {
+    public ResponseEntity<ApiResponse<AuthResponse>> register(@Valid @RequestBody RegisterRequest request,
+                                                              HttpServletRequest httpRequest) {
         try {
-            AuthResponse response = authService.register(request);
+            AuthResponse response = authService.register(request, httpRequest.getRemoteAddr());
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(e.getMessage()));
@@ -34,36 +34,13 @@ public class AuthController {
     }
 
     @PostMapping("/register-admin")
-    public ResponseEntity<ApiResponse<AuthResponse>> registerAdmin(@Valid @RequestBody RegisterRequest request) {
+    public ResponseEntity<ApiResponse<AuthResponse>> registerAdmin(@Valid @RequestBody RegisterRequest request,
+                                                                   HttpServletRequest httpRequest) {
         try {
-            // Check if email already exists
-            if (userRepository.existsByEmail(request.getEmail())) {
-                return ResponseEntity.badRequest()
-                        .body(ApiResponse.error("Email already exists"));
-            }
-
-            // Create admin user
-            User admin = new User();
-            admin.setEmail(request.getEmail());
-            admin.setPassword(passwordEncoder.encode(request.getPassword()));
-            admin.setFullName(request.getFullName());
-            admin.setRole(User.Role.ADMIN); // Set as ADMIN
-
-            User savedAdmin = userRepository.save(admin);
-
-            // Generate JWT token with ADMIN role
-            String token = jwtService.generateToken(savedAdmin.getEmail(), savedAdmin.getRole().name());
-
-            // Return response
-            AuthResponse response = AuthResponse.builder()
-                    .token(token)
-                    .email(savedAdmin.getEmail())
-                    .fullName(savedAdmin.getFullName())
-                    .role(savedAdmin.getRole().name())
-                    .message("Admin registration successful")
-                    .build();
-
+            AuthResponse response = authService.registerAdmin(request, httpRequest.getRemoteAddr());
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(e.getMessage()));
@@ -71,13 +48,22 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                           HttpServletRequest httpRequest) {
         try {
-            AuthResponse response = authService.login(request);
+            AuthResponse response = authService.login(request, httpRequest.getRemoteAddr());
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(e.getMessage()));
         }
     }
+
+    private ResponseEntity<ApiResponse<AuthResponse>> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
 }
\ No newline at end of file
@@ -1,19 +1,32 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.ChatHistoryPage;
 import com.example.demo.dto.ChatRequest;
 import com.example.demo.dto.ChatResponse;
-import com.example.demo.model.User;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.dto.MoodTrendResponse;
+import com.example.demo.config.AuthenticatedUser;
 import com.example.demo.service.ChatService;
+import com.example.demo.service.MoodTrendService;
+import com.example.demo.service.TooManyRequestsException;
+import jakarta.servlet.http.HttpServletRequest;
 import com.example.demo.service.OpenAIService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -23,40 +36,71 @@ public class ChatController {
 
     private final ChatService chatService;
     private final OpenAIService openAIService;
-    private final UserRepository userRepository;  // Add this line
+    private final MoodTrendService moodTrendService;
 
+    @Value("${chat.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    /**
+     * Async: the request thread is released while the reply is generated, and the
+     * response is written once the chat is saved.
+     */
     @PostMapping("/send")
-    public ResponseEntity<ApiResponse<ChatResponse>> sendMessage(
+    public CompletableFuture<ResponseEntity<ApiResponse<ChatResponse>>> sendMessage(
             @Valid @RequestBody ChatRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            String email = authentication.getName();
-            ChatResponse response = chatService.sendMessage(request, email);
-            return ResponseEntity.ok(ApiResponse.success(response));
+            return chatService.sendMessage(request, user.id())
+                    .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)))
+                    .exceptionally(this::failed);
         } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(e.getMessage()));
+            return CompletableFuture.completedFuture(failed(e));
         }
     }
 
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessage(
+            @Valid @RequestBody ChatRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        try {
+            chatService.streamMessage(request, user.id(), emitter);
+        } catch (TooManyRequestsException e) {
+            // Rejected before the stream started, so a plain 429 can still be sent
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (Exception e) {
+            try {
+                emitter.send(SseEmitter.event().name("error").data(ApiResponse.error(e.getMessage())));
+            } catch (IOException ignored) {
+                // Client already gone
+            }
+            emitter.complete();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     @PostMapping("/anonymous")
-    public ResponseEntity<ApiResponse<ChatResponse>> sendAnonymousMessage(
-            @Valid @RequestBody ChatRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<ChatResponse>>> sendAnonymousMessage(
+            @Valid @RequestBody ChatRequest request,
+            HttpServletRequest httpRequest) {
         try {
-            ChatResponse response = chatService.sendAnonymousMessage(request);
-            return ResponseEntity.ok(ApiResponse.success(response));
+            return chatService.sendAnonymousMessage(request, httpRequest.getRemoteAddr())
+                    .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)))
+                    .exceptionally(this::failed);
         } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(e.getMessage()));
+            return CompletableFuture.completedFuture(failed(e));
         }
     }
 
     @GetMapping("/history")
-    public ResponseEntity<ApiResponse<List<ChatResponse>>> getChatHistory(
-            Authentication authentication) {
+    public ResponseEntity<ApiResponse<ChatHistoryPage>> getChatHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            String email = authentication.getName();
-            List<ChatResponse> history = chatService.getChatHistory(email);
+            ChatHistoryPage history = chatService.getChatHistory(user.id(), cursor, size);
             return ResponseEntity.ok(ApiResponse.success(history));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -64,13 +108,27 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/trends")
+    public ResponseEntity<ApiResponse<MoodTrendResponse>> getMoodTrend(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        try {
+            MoodTrendResponse trend = moodTrendService.getUserTrend(user.id(), granularity, from, to);
+            return ResponseEntity.ok(ApiResponse.success(trend));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/{chatId}")
     public ResponseEntity<ApiResponse<Void>> deleteChat(
             @PathVariable Long chatId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            String email = authentication.getName();
-            chatService.deleteChat(chatId, email);
+            chatService.deleteChat(chatId, user.id());
             return ResponseEntity.ok(ApiResponse.success(null));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -80,12 +138,9 @@ public class ChatController {
 
     @PostMapping("/clear-context")
     public ResponseEntity<ApiResponse<String>> clearConversationContext(
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            User user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            openAIService.clearConversationHistory(user.getId().toString());
+            openAIService.clearConversationHistory(user.id().toString());
 
             return ResponseEntity.ok(ApiResponse.success("Conversation context cleared successfully"));
         } catch (Exception e) {
@@ -93,4 +148,19 @@ public class ChatController {
                     .body(ApiResponse.error(e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    private <T> ResponseEntity<ApiResponse<T>> failed(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof TooManyRequestsException tooMany) {
+            return tooManyRequests(tooMany);
+        }
+        return ResponseEntity.badRequest()
+                .body(ApiResponse.error(cause.getMessage()));
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminChatRow {
+    private Long id;
+    private Long userId;
+    private String userEmail;
+    private String message;
+    private String response;
+    private String sentiment;
+    private Double moodScore;
+    private LocalDateTime createdAt;
+}
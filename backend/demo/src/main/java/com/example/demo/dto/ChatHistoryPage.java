@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistoryPage {
+    private List<ChatResponse> items;
+    // Pass back as "cursor" to get the next (older) page; null on the last page
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MoodTrendPoint {
+    private LocalDateTime bucketStart;
+    private long chatCount;
+    private long positiveCount;
+    private long negativeCount;
+    private long neutralCount;
+    // null when no chat in the bucket has a mood score
+    private Double averageMoodScore;
+}
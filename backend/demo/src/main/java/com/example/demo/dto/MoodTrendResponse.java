@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MoodTrendResponse {
+    private String granularity;
+    // Bucket-aligned range, end exclusive
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // One point per bucket, empty buckets included
+    private List<MoodTrendPoint> points;
+    private long totalChats;
+    private Map<String, Long> sentimentDistribution;
+    private Double averageMoodScore;
+}
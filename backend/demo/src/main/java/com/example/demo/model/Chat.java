@@ -9,14 +9,24 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chats")
+@Table(name = "chats", indexes = {
+        @Index(name = "idx_chats_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_chats_created_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Chat {
 
+    public static final int ID_BLOCK_SIZE = 50;
+
+    /**
+     * Pooled sequence rather than IDENTITY so Hibernate can batch chat inserts; ids are
+     * handed out in blocks of 50 (a {@code chats_seq} table on MySQL).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chats_seq")
+    @SequenceGenerator(name = "chats_seq", sequenceName = "chats_seq", allocationSize = Chat.ID_BLOCK_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -43,6 +53,9 @@ public class Chat {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Write-behind stamps the chat when it is queued, not when its batch is flushed
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shared conversation context of one user: the last few turns in compact binary form,
+ * valid until {@code expiresAt}.
+ */
+@Entity
+@Table(name = "conversation_contexts", indexes = {
+        @Index(name = "idx_conversation_contexts_expires", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationContext {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] turns;
+
+    @Column(name = "turn_count")
+    private Integer turnCount;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Mood totals of all chats created on one day. Each day is split over a few stripes
+ * (by user id) so concurrent writers do not all queue on the same row; readers add the
+ * stripes up.
+ */
+@Entity
+@Table(name = "daily_mood_rollups")
+@IdClass(DailyMoodRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyMoodRollup {
+
+    @Id
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    @Id
+    private Integer stripe;
+
+    @Column(name = "chat_count", nullable = false)
+    private long chatCount;
+
+    @Column(name = "positive_count", nullable = false)
+    private long positiveCount;
+
+    @Column(name = "negative_count", nullable = false)
+    private long negativeCount;
+
+    @Column(name = "neutral_count", nullable = false)
+    private long neutralCount;
+
+    @Column(name = "mood_score_sum", nullable = false)
+    private double moodScoreSum;
+
+    @Column(name = "mood_score_count", nullable = false)
+    private long moodScoreCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate bucketDate;
+        private Integer stripe;
+    }
+}
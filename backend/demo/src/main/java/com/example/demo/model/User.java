@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_created_id", columnList = "created_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
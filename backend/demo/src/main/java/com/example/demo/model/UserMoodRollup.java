@@ -0,0 +1,39 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running mood totals of one user, kept up to date with every chat insert and delete.
+ */
+@Entity
+@Table(name = "user_mood_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserMoodRollup {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "chat_count", nullable = false)
+    private long chatCount;
+
+    @Column(name = "positive_count", nullable = false)
+    private long positiveCount;
+
+    @Column(name = "negative_count", nullable = false)
+    private long negativeCount;
+
+    @Column(name = "neutral_count", nullable = false)
+    private long neutralCount;
+
+    @Column(name = "mood_score_sum", nullable = false)
+    private double moodScoreSum;
+
+    @Column(name = "mood_score_count", nullable = false)
+    private long moodScoreCount;
+}
@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+/**
+ * Id and message text only, for jobs that re-process stored messages without
+ * loading the full entity.
+ */
+public interface ChatMessageView {
+    Long getId();
+
+    String getMessage();
+}
@@ -1,6 +1,8 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ChatResponse;
 import com.example.demo.model.Chat;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -8,7 +10,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface ChatRepository extends JpaRepository<Chat, Long> {
+public interface ChatRepository extends JpaRepository<Chat, Long>, ChatRepositoryCustom {
     List<Chat> findByUserIdOrderByCreatedAtDesc(Long userId);
 
     List<Chat> findByUserIdAndCreatedAtBetween(Long userId, LocalDateTime start, LocalDateTime end);
@@ -21,4 +23,101 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
 
     @Query("SELECT c.sentiment, COUNT(c) FROM Chat c WHERE c.user.id = ?1 GROUP BY c.sentiment")
     List<Object[]> getSentimentDistribution(Long userId);
-}
\ No newline at end of file
+
+    @Query("SELECT c.id AS id, c.message AS message FROM Chat c WHERE c.id > ?1 ORDER BY c.id")
+    List<ChatMessageView> findMessagesAfterId(Long afterId, Pageable pageable);
+
+    /**
+     * Newest turns first; bounded by the page size and served by the (user_id, created_at, id) index.
+     */
+    @Query("SELECT c.message AS message, c.response AS response FROM Chat c "
+            + "WHERE c.user.id = ?1 ORDER BY c.createdAt DESC, c.id DESC")
+    List<ChatTurnView> findLatestTurns(Long userId, Pageable pageable);
+
+    /**
+     * First page of a user's history, newest first, mapped straight to the response DTO.
+     */
+    @Query("SELECT new com.example.demo.dto.ChatResponse(c.id, c.message, c.response, c.sentiment, c.moodScore, c.createdAt) "
+            + "FROM Chat c WHERE c.user.id = ?1 ORDER BY c.createdAt DESC, c.id DESC")
+    List<ChatResponse> findHistoryPage(Long userId, Pageable pageable);
+
+    /**
+     * Page after the keyset cursor (createdAt, id); cost does not depend on how deep the page is.
+     */
+    @Query("SELECT new com.example.demo.dto.ChatResponse(c.id, c.message, c.response, c.sentiment, c.moodScore, c.createdAt) "
+            + "FROM Chat c WHERE c.user.id = ?1 AND (c.createdAt < ?2 OR (c.createdAt = ?2 AND c.id < ?3)) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ChatResponse> findHistoryPageBefore(Long userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    /**
+     * Per-day totals of one user's chats, used to take a deleted user out of the daily rollups.
+     */
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS bucketDate, COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c WHERE c.user.id = ?1 AND c.createdAt IS NOT NULL GROUP BY CAST(c.createdAt AS LocalDate)")
+    List<MoodTotalsView> sumByDayForUser(Long userId);
+
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS bucketDate, COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c WHERE c.user.id = ?1 AND c.createdAt >= ?2 AND c.createdAt < ?3 "
+            + "GROUP BY CAST(c.createdAt AS LocalDate)")
+    List<MoodTotalsView> sumByDayForUserBetween(Long userId, LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS bucketDate, EXTRACT(HOUR FROM c.createdAt) AS bucketHour, "
+            + "COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c WHERE c.user.id = ?1 AND c.createdAt >= ?2 AND c.createdAt < ?3 "
+            + "GROUP BY CAST(c.createdAt AS LocalDate), EXTRACT(HOUR FROM c.createdAt)")
+    List<MoodHourlyTotalsView> sumByHourForUserBetween(Long userId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * All users per day. Only read until the rollups are known to be filled, see
+     * {@code MoodRollupService.isReady()}.
+     */
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS bucketDate, COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c WHERE c.createdAt >= ?1 AND c.createdAt < ?2 "
+            + "GROUP BY CAST(c.createdAt AS LocalDate) ORDER BY CAST(c.createdAt AS LocalDate)")
+    List<MoodTotalsView> sumByDayBetween(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c")
+    MoodTotalsView sumAll();
+
+    @Query("SELECT COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c WHERE c.user.id = ?1")
+    MoodTotalsView sumForUser(Long userId);
+
+    /**
+     * All users; daily and weekly views come from the rollups, only hours need the chats table.
+     */
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS bucketDate, EXTRACT(HOUR FROM c.createdAt) AS bucketHour, "
+            + "COUNT(c) AS chatCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' THEN 1 ELSE 0 END) AS positiveCount, "
+            + "SUM(CASE WHEN c.sentiment = 'NEGATIVE' THEN 1 ELSE 0 END) AS negativeCount, "
+            + "SUM(CASE WHEN c.sentiment = 'POSITIVE' OR c.sentiment = 'NEGATIVE' THEN 0 ELSE 1 END) AS neutralCount, "
+            + "SUM(c.moodScore) AS moodScoreSum, COUNT(c.moodScore) AS moodScoreCount "
+            + "FROM Chat c WHERE c.createdAt >= ?1 AND c.createdAt < ?2 "
+            + "GROUP BY CAST(c.createdAt AS LocalDate), EXTRACT(HOUR FROM c.createdAt)")
+    List<MoodHourlyTotalsView> sumByHourBetween(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.AdminChatRow;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ChatRepositoryCustom {
+
+    /**
+     * Admin listing, newest first by (createdAt, id); {@code beforeCreatedAt} and
+     * {@code beforeId} are the keyset cursor and every filter may be null. Ids come from a
+     * pooled sequence and are not in time order, hence the createdAt. Only the filters given
+     * end up in the query, so each combination gets a plan that can use the matching index.
+     */
+    List<AdminChatRow> findAdminPage(Long userId, String sentiment, LocalDateTime from, LocalDateTime to,
+                                     LocalDateTime beforeCreatedAt, Long beforeId, Pageable pageable);
+}
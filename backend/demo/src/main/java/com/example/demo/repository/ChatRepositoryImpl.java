@@ -0,0 +1,63 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.AdminChatRow;
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+class ChatRepositoryImpl implements ChatRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AdminChatRow> findAdminPage(Long userId, String sentiment, LocalDateTime from, LocalDateTime to,
+                                            LocalDateTime beforeCreatedAt, Long beforeId, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AdminChatRow> query = cb.createQuery(AdminChatRow.class);
+        Root<Chat> chat = query.from(Chat.class);
+        Join<Chat, User> user = chat.join("user", JoinType.LEFT);
+
+        List<Predicate> where = new ArrayList<>();
+        if (userId != null) {
+            // The foreign key itself, so the (user_id, ...) index applies
+            where.add(cb.equal(chat.get("user").get("id"), userId));
+        }
+        if (sentiment != null) {
+            where.add(cb.equal(chat.get("sentiment"), sentiment));
+        }
+        if (from != null) {
+            where.add(cb.greaterThanOrEqualTo(chat.get("createdAt"), from));
+        }
+        if (to != null) {
+            where.add(cb.lessThan(chat.get("createdAt"), to));
+        }
+        if (beforeCreatedAt != null && beforeId != null) {
+            where.add(cb.or(cb.lessThan(chat.get("createdAt"), beforeCreatedAt),
+                    cb.and(cb.equal(chat.get("createdAt"), beforeCreatedAt), cb.lessThan(chat.get("id"), beforeId))));
+        }
+
+        query.select(cb.construct(AdminChatRow.class, chat.get("id"), user.get("id"), user.get("email"),
+                        chat.get("message"), chat.get("response"), chat.get("sentiment"), chat.get("moodScore"),
+                        chat.get("createdAt")))
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(cb.desc(chat.get("createdAt")), cb.desc(chat.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.repository;
+
+/**
+ * One stored exchange, message and reply only.
+ */
+public interface ChatTurnView {
+    String getMessage();
+
+    String getResponse();
+}
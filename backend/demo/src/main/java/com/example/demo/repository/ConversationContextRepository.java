@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.ConversationContext;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ConversationContextRepository extends JpaRepository<ConversationContext, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ConversationContext c WHERE c.userId = ?1")
+    Optional<ConversationContext> findForUpdate(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM ConversationContext c WHERE c.expiresAt < ?1")
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,67 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.DailyMoodRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyMoodRollupRepository extends JpaRepository<DailyMoodRollup, DailyMoodRollup.Key> {
+
+    /**
+     * Adds the deltas to one (day, stripe) row, creating it on first use.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_mood_rollups "
+            + "(bucket_date, stripe, chat_count, positive_count, negative_count, neutral_count, mood_score_sum, mood_score_count) "
+            + "VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8) ON DUPLICATE KEY UPDATE "
+            + "chat_count = chat_count + VALUES(chat_count), "
+            + "positive_count = positive_count + VALUES(positive_count), "
+            + "negative_count = negative_count + VALUES(negative_count), "
+            + "neutral_count = neutral_count + VALUES(neutral_count), "
+            + "mood_score_sum = mood_score_sum + VALUES(mood_score_sum), "
+            + "mood_score_count = mood_score_count + VALUES(mood_score_count)", nativeQuery = true)
+    int addTotals(LocalDate bucketDate, int stripe, long chats, long positive, long negative, long neutral,
+                  double moodScoreSum, long moodScoreCount);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_mood_rollups "
+            + "(bucket_date, stripe, chat_count, positive_count, negative_count, neutral_count, mood_score_sum, mood_score_count) "
+            + "SELECT CAST(created_at AS DATE), MOD(user_id, ?1), COUNT(*), "
+            + "SUM(CASE WHEN sentiment = 'POSITIVE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN sentiment = 'NEGATIVE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN sentiment = 'POSITIVE' OR sentiment = 'NEGATIVE' THEN 0 ELSE 1 END), "
+            + "COALESCE(SUM(mood_score), 0), COUNT(mood_score) "
+            + "FROM chats WHERE user_id IS NOT NULL AND created_at IS NOT NULL "
+            + "GROUP BY CAST(created_at AS DATE), MOD(user_id, ?1)", nativeQuery = true)
+    int rebuildFromChats(int stripes);
+
+    @Modifying
+    @Query("DELETE FROM DailyMoodRollup r")
+    int deleteAllRows();
+
+    @Query("SELECT SUM(r.chatCount) AS chatCount, SUM(r.positiveCount) AS positiveCount, "
+            + "SUM(r.negativeCount) AS negativeCount, SUM(r.neutralCount) AS neutralCount, "
+            + "SUM(r.moodScoreSum) AS moodScoreSum, SUM(r.moodScoreCount) AS moodScoreCount "
+            + "FROM DailyMoodRollup r")
+    MoodTotalsView sumAll();
+
+    /**
+     * One row per day in the range, stripes already added up.
+     */
+    @Query("SELECT r.bucketDate AS bucketDate, SUM(r.chatCount) AS chatCount, SUM(r.positiveCount) AS positiveCount, "
+            + "SUM(r.negativeCount) AS negativeCount, SUM(r.neutralCount) AS neutralCount, "
+            + "SUM(r.moodScoreSum) AS moodScoreSum, SUM(r.moodScoreCount) AS moodScoreCount "
+            + "FROM DailyMoodRollup r WHERE r.bucketDate >= ?1 GROUP BY r.bucketDate ORDER BY r.bucketDate")
+    List<MoodTotalsView> sumByDaySince(LocalDate from);
+
+    @Query("SELECT r.bucketDate AS bucketDate, SUM(r.chatCount) AS chatCount, SUM(r.positiveCount) AS positiveCount, "
+            + "SUM(r.negativeCount) AS negativeCount, SUM(r.neutralCount) AS neutralCount, "
+            + "SUM(r.moodScoreSum) AS moodScoreSum, SUM(r.moodScoreCount) AS moodScoreCount "
+            + "FROM DailyMoodRollup r WHERE r.bucketDate >= ?1 AND r.bucketDate < ?2 GROUP BY r.bucketDate")
+    List<MoodTotalsView> sumByDayBetween(LocalDate from, LocalDate to);
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.example.demo.repository;
+
+/**
+ * {@link MoodTotalsView} of a single hour of {@link #getBucketDate()}.
+ */
+public interface MoodHourlyTotalsView extends MoodTotalsView {
+
+    Integer getBucketHour();
+}
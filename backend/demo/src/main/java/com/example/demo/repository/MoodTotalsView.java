@@ -0,0 +1,23 @@
+package com.example.demo.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Summed rollup counters; every getter is null when nothing was summed.
+ */
+public interface MoodTotalsView {
+
+    LocalDate getBucketDate();
+
+    Long getChatCount();
+
+    Long getPositiveCount();
+
+    Long getNegativeCount();
+
+    Long getNeutralCount();
+
+    Double getMoodScoreSum();
+
+    Long getMoodScoreCount();
+}
@@ -0,0 +1,47 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.UserMoodRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserMoodRollupRepository extends JpaRepository<UserMoodRollup, Long> {
+
+    /**
+     * Adds the deltas to the user's row, creating it on first use, in one statement so
+     * concurrent writers never lose an increment.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_mood_rollups "
+            + "(user_id, chat_count, positive_count, negative_count, neutral_count, mood_score_sum, mood_score_count) "
+            + "VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7) ON DUPLICATE KEY UPDATE "
+            + "chat_count = chat_count + VALUES(chat_count), "
+            + "positive_count = positive_count + VALUES(positive_count), "
+            + "negative_count = negative_count + VALUES(negative_count), "
+            + "neutral_count = neutral_count + VALUES(neutral_count), "
+            + "mood_score_sum = mood_score_sum + VALUES(mood_score_sum), "
+            + "mood_score_count = mood_score_count + VALUES(mood_score_count)", nativeQuery = true)
+    int addTotals(Long userId, long chats, long positive, long negative, long neutral,
+                  double moodScoreSum, long moodScoreCount);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_mood_rollups "
+            + "(user_id, chat_count, positive_count, negative_count, neutral_count, mood_score_sum, mood_score_count) "
+            + "SELECT user_id, COUNT(*), "
+            + "SUM(CASE WHEN sentiment = 'POSITIVE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN sentiment = 'NEGATIVE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN sentiment = 'POSITIVE' OR sentiment = 'NEGATIVE' THEN 0 ELSE 1 END), "
+            + "COALESCE(SUM(mood_score), 0), COUNT(mood_score) "
+            + "FROM chats WHERE user_id IS NOT NULL GROUP BY user_id", nativeQuery = true)
+    int rebuildFromChats();
+
+    @Modifying
+    @Query("DELETE FROM UserMoodRollup r WHERE r.userId = ?1")
+    int deleteRow(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UserMoodRollup r")
+    int deleteAllRows();
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.User;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Admin listing, newest first by (createdAt, id); {@code beforeCreatedAt} and
+     * {@code beforeId} are the keyset cursor and every filter may be null. Only the filters
+     * given end up in the query.
+     */
+    List<User> findAdminPage(User.Role role, String emailContains, LocalDateTime beforeCreatedAt, Long beforeId,
+                             Pageable pageable);
+}
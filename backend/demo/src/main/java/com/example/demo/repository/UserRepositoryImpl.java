@@ -0,0 +1,51 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> findAdminPage(User.Role role, String emailContains, LocalDateTime beforeCreatedAt, Long beforeId,
+                                    Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> user = query.from(User.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (role != null) {
+            where.add(cb.equal(user.get("role"), role));
+        }
+        if (emailContains != null) {
+            String pattern = "%" + emailContains.toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            where.add(cb.like(cb.lower(user.get("email")), pattern, '\\'));
+        }
+        if (beforeCreatedAt != null && beforeId != null) {
+            where.add(cb.or(cb.lessThan(user.get("createdAt"), beforeCreatedAt),
+                    cb.and(cb.equal(user.get("createdAt"), beforeCreatedAt), cb.lessThan(user.get("id"), beforeId))));
+        }
+
+        query.where(where.toArray(Predicate[]::new))
+                .orderBy(cb.desc(user.get("createdAt")), cb.desc(user.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+}
@@ -1,15 +1,23 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.AdminChatRow;
+import com.example.demo.dto.CursorPage;
 import com.example.demo.model.Chat;
 import com.example.demo.model.User;
 import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -17,50 +25,133 @@ public class AdminService {
 
     private final UserRepository userRepository;
     private final ChatRepository chatRepository;
-
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    private final LlmRouter llmRouter;
+    private final ConversationStore conversationStore;
+    private final ConversationContextBuilder conversationContextBuilder;
+    private final ConversationSummarizer conversationSummarizer;
+    private final MoodRollupService moodRollupService;
+    private final JwtService jwtService;
+    private final PasswordHasher passwordHasher;
+    private final AuthRateLimiter authRateLimiter;
+    private final ChatRateLimiter chatRateLimiter;
+    private final AnonymousResponseCache anonymousResponseCache;
+    private final PromptTemplates promptTemplates;
+    private final ChatWriteBehind chatWriteBehind;
+
+    @Value("${admin.page.max-size:200}")
+    private int maxPageSize = 200;
+
+    public CursorPage<User> getUsers(User.Role role, String emailContains, String cursor, int size) {
+        int pageSize = pageSize(size);
+        String query = emailContains == null || emailContains.isBlank() ? null : emailContains.trim();
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<User> rows = userRepository.findAdminPage(role, query,
+                after != null ? after.createdAt() : null, after != null ? after.id() : null,
+                PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, user -> new KeysetCursor(user.getCreatedAt(), user.getId()));
     }
 
-    public List<Chat> getAllChats() {
-        return chatRepository.findAll();
+    public CursorPage<AdminChatRow> getChats(ChatFilter filter, String cursor, int size) {
+        int pageSize = pageSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<AdminChatRow> rows = chatRepository.findAdminPage(filter.userId(), filter.sentiment(),
+                filter.from(), filter.to(), after != null ? after.createdAt() : null, after != null ? after.id() : null,
+                PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, row -> new KeysetCursor(row.getCreatedAt(), row.getId()));
     }
 
+    @Transactional
     public void deleteUser(Long userId) {
+        moodRollupService.removeUser(userId);
         userRepository.deleteById(userId);
+        // Tokens carry the user id, so refuse them once the delete has committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                jwtService.revokeUser(userId);
+            }
+        });
     }
 
+    @Transactional
     public void deleteChat(Long chatId) {
-        chatRepository.deleteById(chatId);
+        Chat chat = chatRepository.findById(chatId)
+                .orElseThrow(() -> new RuntimeException("Chat not found"));
+        chatRepository.delete(chat);
+        moodRollupService.removeChat(chat.getUser().getId(), chat.getCreatedAt(), chat.getSentiment(), chat.getMoodScore());
     }
 
+    /**
+     * Served from the daily rollups: one row per day and stripe, however many chats exist.
+     */
     public Map<String, Object> getAnalytics() {
-        Map<String, Object> analytics = new HashMap<>();
+        Map<String, Object> analytics = moodRollupService.getGlobalSummary(30);
+        analytics.put("totalUsers", userRepository.count());
+
+        Map<String, Long> usersByRole = new LinkedHashMap<>();
+        for (User.Role role : User.Role.values()) {
+            usersByRole.put(role.name(), userRepository.countByRole(role));
+        }
+        analytics.put("usersByRole", usersByRole);
+        return analytics;
+    }
 
-        long totalUsers = userRepository.count();
-        long totalChats = chatRepository.count();
+    public Map<String, Object> getUserAnalytics(Long userId) {
+        return moodRollupService.getUserSummary(userId);
+    }
 
-        List<Object[]> sentimentDist = chatRepository
-                .getSentimentDistribution(null); // For all users
+    public Map<String, Object> rebuildMoodRollups() {
+        Map<String, Object> result = moodRollupService.rebuild();
+        // Committed by now, so reads can move off the chats table if the startup rebuild failed
+        moodRollupService.markReady();
+        return result;
+    }
 
-        analytics.put("totalUsers", totalUsers);
-        analytics.put("totalChats", totalChats);
-        analytics.put("sentimentDistribution", sentimentDist);
+    public Map<String, Object> getUpstreamStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(llmRouter.getStats());
+        stats.put("rateLimiting", chatRateLimiter.getStats());
+        stats.put("anonymousCache", anonymousResponseCache.stats());
+        return stats;
+    }
 
-        return analytics;
+    public Map<String, Object> getAuthStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("passwordHashing", passwordHasher.getStats());
+        stats.put("rateLimiting", authRateLimiter.getStats());
+        stats.put("tokenCache", jwtService.getCacheStats());
+        return stats;
     }
 
-    public Map<String, Object> getUserAnalytics(Long userId) {
-        Map<String, Object> analytics = new HashMap<>();
+    public Map<String, Object> getConversationMemoryStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(conversationStore.stats());
+        stats.put("context", conversationContextBuilder.stats());
+        stats.put("summaries", conversationSummarizer.stats());
+        return stats;
+    }
 
-        Double avgMoodScore = chatRepository.getAverageMoodScore(userId);
-        List<Object[]> sentimentDist = chatRepository.getSentimentDistribution(userId);
-        List<Chat> recentChats = chatRepository.findRecentChatsByUserId(userId);
+    public Map<String, Object> getPersistenceStats() {
+        return chatWriteBehind.getStats();
+    }
 
-        analytics.put("averageMoodScore", avgMoodScore != null ? avgMoodScore : 0.0);
-        analytics.put("sentimentDistribution", sentimentDist);
-        analytics.put("totalChats", recentChats.size());
+    public Map<String, Object> getPromptTemplates() {
+        return promptTemplates.stats();
+    }
 
-        return analytics;
+    public Map<String, Object> reloadPromptTemplates() {
+        return promptTemplates.reload();
+    }
+
+    private int pageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    private static <T> CursorPage<T> toPage(List<T> rows, int pageSize, Function<T, KeysetCursor> position) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? rows.subList(0, pageSize) : rows;
+        return CursorPage.<T>builder()
+                .items(items)
+                .nextCursor(hasMore ? position.apply(items.get(items.size() - 1)).encode() : null)
+                .hasMore(hasMore)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,239 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Replies to anonymous messages, reused for identical prompts. Anonymous chats have no
+ * history, so the reply to the same normalized message under the same system prompt and
+ * model parameters is interchangeable. Entries live for
+ * {@code ttl} from when they were stored and are evicted least-recently-used once the
+ * estimated size passes {@code maxBytes}. Only real upstream replies are stored, never
+ * the canned fallbacks.
+ *
+ * <p>Misses for the same key that overlap in time are coalesced: the first caller loads,
+ * everyone else waits on its result instead of making their own upstream call.
+ */
+@Component
+public class AnonymousResponseCache {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s.!?]+$");
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Optional<String>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public AnonymousResponseCache(
+            @Value("${chat.anonymous-cache.enabled:true}") boolean enabled,
+            @Value("${chat.anonymous-cache.max-bytes:16777216}") long maxBytes,
+            @Value("${chat.anonymous-cache.ttl:PT10M}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Cached reply, or the result of {@code loader}, shared with any concurrent callers for
+     * the same key. A present result is cached; an empty one (the upstream failed) is handed
+     * to the waiting callers but not stored. Waiting callers hold no thread, they chain on
+     * the loading caller's future. If the loader fails, e.g. because the loading caller's
+     * own rate limit rejected it, the returned future fails with that exception and the
+     * waiters are not charged with it: they retry on their own account.
+     */
+    public CompletableFuture<Optional<String>> getOrLoad(String message, String prompt, String modelParams,
+                                                         Supplier<CompletableFuture<Optional<String>>> loader) {
+        if (!enabled) {
+            return call(loader);
+        }
+        return getOrLoad(key(message, prompt, modelParams), loader);
+    }
+
+    private CompletableFuture<Optional<String>> getOrLoad(Key key, Supplier<CompletableFuture<Optional<String>>> loader) {
+        Optional<String> cached = lookup(key);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Optional<String>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<String>> leader = inFlight.putIfAbsent(key, mine);
+        if (leader == null) {
+            return load(key, mine, loader);
+        }
+
+        coalesced.increment();
+        return leader.handle((result, error) -> error == null
+                        ? CompletableFuture.completedFuture(result)
+                        // The loading caller failed for its own reasons; go round again
+                        : getOrLoad(key, loader))
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Optional<String>> load(Key key, CompletableFuture<Optional<String>> flight,
+                                                     Supplier<CompletableFuture<Optional<String>>> loader) {
+        // Another flight may have finished between our lookup and taking this one
+        Optional<String> fresh = peek(key);
+        CompletableFuture<Optional<String>> result = fresh.isPresent()
+                ? CompletableFuture.completedFuture(fresh)
+                : call(loader);
+        return result.whenComplete((reply, error) -> {
+            if (error == null) {
+                reply.ifPresent(response -> store(key, response));
+            }
+            inFlight.remove(key, flight);
+            if (error == null) {
+                flight.complete(reply);
+            } else {
+                flight.completeExceptionally(error);
+            }
+        });
+    }
+
+    private static CompletableFuture<Optional<String>> call(Supplier<CompletableFuture<Optional<String>>> loader) {
+        try {
+            return loader.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Optional<String> lookup(Key key) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt > 0) {
+                remove(key);
+                expirations++;
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+                return Optional.empty();
+            }
+            hits++;
+            return Optional.of(entry.response);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<String> peek(Key key) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            return entry != null && now - entry.expiresAt <= 0 ? Optional.of(entry.response) : Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(Key key, String response) {
+        Entry entry = new Entry(response, System.nanoTime() + ttlNanos, estimatedBytes(key, response));
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            remove(key);
+            entries.put(key, entry);
+            totalBytes += entry.bytes;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        lock.lock();
+        try {
+            long lookups = hits + misses;
+            stats.put("entries", entries.size());
+            stats.put("estimatedBytes", totalBytes);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRatio", lookups > 0 ? (double) hits / lookups : 0.0);
+            stats.put("evictions", evictions);
+            stats.put("expirations", expirations);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("inFlight", inFlight.size());
+        stats.put("coalesced", coalesced.sum());
+        return stats;
+    }
+
+    /**
+     * Case, Unicode form, runs of whitespace and trailing punctuation do not change the
+     * reply, so "Give me  happy songs!" and "give me happy songs" share an entry.
+     */
+    static String normalize(String message) {
+        String text = Normalizer.normalize(message, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        text = WHITESPACE.matcher(text.strip()).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(text).replaceAll("");
+    }
+
+    private static Key key(String message, String prompt, String modelParams) {
+        return new Key(normalize(message), prompt, modelParams);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private static long estimatedBytes(Key key, String response) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (key.message().length() + key.prompt().length()
+                + key.modelParams().length() + response.length());
+    }
+
+    private record Key(String message, String prompt, String modelParams) {
+    }
+
+    private record Entry(String response, long expiresAt, long bytes) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client-IP and per-account token buckets for the auth endpoints. Checked before any
+ * password hashing, so a credential-stuffing wave is turned away without spending CPU.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private final TokenBucketLimiter perIp;
+    private final TokenBucketLimiter perAccount;
+    private final AtomicLong throttled = new AtomicLong();
+
+    public AuthRateLimiter(
+            @Value("${auth.rate-limit.ip.capacity:20}") long ipCapacity,
+            @Value("${auth.rate-limit.account.capacity:5}") long accountCapacity,
+            @Value("${auth.rate-limit.refill-period:PT1M}") Duration refillPeriod,
+            @Value("${auth.rate-limit.max-keys:100000}") int maxKeys) {
+        this.perIp = new TokenBucketLimiter(ipCapacity, refillPeriod, maxKeys);
+        this.perAccount = new TokenBucketLimiter(accountCapacity, refillPeriod, maxKeys);
+    }
+
+    public void checkIp(String clientIp) {
+        check(perIp, clientIp);
+    }
+
+    public void checkAccount(String email) {
+        if (email != null) {
+            check(perAccount, email.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("throttled", throttled.get());
+        stats.put("trackedIps", perIp.trackedKeys());
+        stats.put("trackedAccounts", perAccount.trackedKeys());
+        return stats;
+    }
+
+    private void check(TokenBucketLimiter limiter, String key) {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            throttled.incrementAndGet();
+            throw new TooManyRequestsException("Too many attempts, please wait before trying again",
+                    TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.example.demo.dto.*;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,11 +12,23 @@ import org.springframework.transaction.annotation.Transactional;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final AuthRateLimiter authRateLimiter;
     private final JwtService jwtService;
 
-    @Transactional
-    public AuthResponse register(RegisterRequest request) {
+    // Not transactional: hashing can wait on the hash pool and must not hold a connection.
+    // The unique email column still rejects a concurrent duplicate on save.
+    public AuthResponse register(RegisterRequest request, String clientIp) {
+        return createUser(request, clientIp, User.Role.USER, "Registration successful");
+    }
+
+    public AuthResponse registerAdmin(RegisterRequest request, String clientIp) {
+        return createUser(request, clientIp, User.Role.ADMIN, "Admin registration successful");
+    }
+
+    private AuthResponse createUser(RegisterRequest request, String clientIp, User.Role role, String message) {
+        authRateLimiter.checkIp(clientIp);
+
         // Check if email already exists
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email already exists");
@@ -26,15 +37,15 @@ public class AuthService {
         // Create new user
         User user = new User();
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHasher.encode(request.getPassword()));
         user.setFullName(request.getFullName());
-        user.setRole(User.Role.USER);
+        user.setRole(role);
 
         // Save user to database
         User savedUser = userRepository.save(user);
 
         // Generate JWT token with role
-        String token = jwtService.generateToken(savedUser.getEmail(), savedUser.getRole().name());
+        String token = jwtService.generateToken(savedUser.getId(), savedUser.getEmail(), savedUser.getRole().name());
 
         // Return response
         return AuthResponse.builder()
@@ -42,23 +53,25 @@ public class AuthService {
                 .email(savedUser.getEmail())
                 .fullName(savedUser.getFullName())
                 .role(savedUser.getRole().name())
-                .message("Registration successful")
+                .message(message)
                 .build();
     }
 
-    @Transactional
-    public AuthResponse login(LoginRequest request) {
+    public AuthResponse login(LoginRequest request, String clientIp) {
+        authRateLimiter.checkIp(clientIp);
+        authRateLimiter.checkAccount(request.getEmail());
+
         // Find user by email
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("Invalid email or password"));
 
         // Verify password
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
             throw new RuntimeException("Invalid email or password");
         }
 
         // Generate JWT token with role
-        String token = jwtService.generateToken(user.getEmail(), user.getRole().name());
+        String token = jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
 
         // Return response
         return AuthResponse.builder()
@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes chats matching a {@link ChatFilter} straight to an output stream as NDJSON or
+ * CSV. Rows come from a forward-only, read-only JDBC cursor with a fixed fetch size and
+ * are written one at a time, so memory use does not depend on how many rows match.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown export format: " + value + " (use ndjson or csv)");
+            }
+        }
+    }
+
+    private static final String[] COLUMNS = {
+            "id", "userId", "userEmail", "sentiment", "moodScore", "createdAt", "message", "response"
+    };
+
+    @Value("${admin.export.fetch-size:500}")
+    private int fetchSize;
+
+    // Rows between flushes to the client; in between, output only leaves when a buffer fills
+    @Value("${admin.export.flush-every-rows:1000}")
+    private int flushEveryRows = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public long export(ChatFilter filter, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        JsonGenerator json = format == Format.NDJSON
+                ? objectMapper.getFactory().createGenerator(writer)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+                        .setRootValueSeparator(null)
+                : null;
+        if (format == Format.CSV) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(connection -> prepare(connection, filter), (RowCallbackHandler) rs -> {
+                try {
+                    if (json != null) {
+                        writeJson(json, rs);
+                        json.writeRaw('\n');
+                    } else {
+                        writeCsv(writer, rs);
+                    }
+                    if (++rows[0] % flushEveryRows == 0) {
+                        flush(json, writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; stop reading and release the cursor
+            log.warn("Chat export aborted after {} rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        flush(json, writer);
+        log.info("Exported {} chats as {}", rows[0], format);
+        return rows[0];
+    }
+
+    private static void flush(JsonGenerator json, Writer writer) throws IOException {
+        if (json != null) {
+            // Only drains the generator into the writer; the writer flush below reaches the client
+            json.flush();
+        }
+        writer.flush();
+    }
+
+    private PreparedStatement prepare(Connection connection, ChatFilter filter) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT c.id, c.user_id, u.email, c.sentiment, c.mood_score, "
+                + "c.created_at, c.message, c.response FROM chats c LEFT JOIN users u ON u.id = c.user_id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (filter.userId() != null) {
+            sql.append(" AND c.user_id = ?");
+            params.add(filter.userId());
+        }
+        if (filter.sentiment() != null) {
+            sql.append(" AND c.sentiment = ?");
+            params.add(filter.sentiment());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND c.created_at >= ?");
+            params.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND c.created_at < ?");
+            params.add(Timestamp.valueOf(filter.to()));
+        }
+        sql.append(" ORDER BY c.id");
+
+        PreparedStatement statement = connection.prepareStatement(
+                sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL Connector/J ignores a positive fetch size unless useCursorFetch=true and
+        // buffers the whole result instead; Integer.MIN_VALUE makes it stream row by row.
+        boolean mysql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+        return statement;
+    }
+
+    private void writeJson(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", rs.getLong(1));
+        json.writeObjectField("userId", rs.getObject(2));
+        json.writeStringField("userEmail", rs.getString(3));
+        json.writeStringField("sentiment", rs.getString(4));
+        json.writeObjectField("moodScore", rs.getObject(5));
+        Timestamp createdAt = rs.getTimestamp(6);
+        json.writeStringField("createdAt", createdAt != null ? createdAt.toLocalDateTime().toString() : null);
+        json.writeStringField("message", rs.getString(7));
+        json.writeStringField("response", rs.getString(8));
+        json.writeEndObject();
+    }
+
+    private void writeCsv(Writer writer, ResultSet rs) throws SQLException, IOException {
+        Timestamp createdAt = rs.getTimestamp(6);
+        Object[] values = {
+                rs.getLong(1), rs.getObject(2), rs.getString(3), rs.getString(4), rs.getObject(5),
+                createdAt != null ? createdAt.toLocalDateTime() : null, rs.getString(7), rs.getString(8)
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(csvField(values[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    static String csvField(String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
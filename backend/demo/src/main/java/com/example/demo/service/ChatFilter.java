@@ -0,0 +1,14 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters of the admin chat listing and export; null means "any".
+ * {@code from} is inclusive, {@code to} exclusive.
+ */
+public record ChatFilter(Long userId, String sentiment, LocalDateTime from, LocalDateTime to) {
+
+    public ChatFilter {
+        sentiment = sentiment == null || sentiment.isBlank() ? null : sentiment.trim().toUpperCase();
+    }
+}
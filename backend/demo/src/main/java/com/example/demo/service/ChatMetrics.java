@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the chat pipeline, scraped from {@code /actuator/prometheus}:
+ * <ul>
+ *   <li>{@code chat.stage} - time per stage of a chat request (admission, sentiment,
+ *       upstream, persistence), tagged with the stage and whether the reply was streamed,
+ *       with a histogram so latency quantiles can be aggregated across nodes</li>
+ *   <li>{@code llm.tokens} - tokens the upstream reports in its usage block, by model,
+ *       purpose (chat or summary) and type (prompt or completion)</li>
+ *   <li>{@code chat.fallbacks} - canned replies sent instead of a model reply, by reason</li>
+ *   <li>{@code conversation.memory.*} - users and estimated bytes held by the
+ *       conversation store, where it reports them</li>
+ * </ul>
+ * JDBC pool waits come from Hikari's own {@code hikaricp.connections.acquire} timer.
+ */
+@Component
+public class ChatMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ChatMetrics(MeterRegistry registry, ConversationStore conversationStore) {
+        this.registry = registry;
+        Map<String, Object> stats = conversationStore.stats();
+        if (stats.get("users") instanceof Number) {
+            Gauge.builder("conversation.memory.users", conversationStore, store -> number(store.stats().get("users")))
+                    .description("Users with conversation context in memory")
+                    .register(registry);
+        }
+        if (stats.get("estimatedBytes") instanceof Number) {
+            Gauge.builder("conversation.memory.size", conversationStore, store -> number(store.stats().get("estimatedBytes")))
+                    .description("Estimated heap used by conversation context")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+    /** Runs {@code work} as one stage of a chat request and records how long it took. */
+    public <T> T time(String stage, boolean streamed, Supplier<T> work) {
+        return stageTimer(stage, streamed).record(work);
+    }
+
+    /** Like {@link #time}, for a stage that finishes when the future {@code work} returns completes. */
+    public <T> CompletableFuture<T> timeAsync(String stage, boolean streamed, Supplier<CompletableFuture<T>> work) {
+        Timer timer = stageTimer(stage, streamed);
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return work.get().whenComplete((result, error) -> sample.stop(timer));
+        } catch (RuntimeException e) {
+            sample.stop(timer);
+            throw e;
+        }
+    }
+
+    public void run(String stage, boolean streamed, Runnable work) {
+        time(stage, streamed, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Counts the tokens in an OpenAI-style {@code usage} object; does nothing if the
+     * upstream sent none.
+     */
+    public void recordTokenUsage(String model, String purpose, JsonNode usage) {
+        if (usage == null || !usage.isObject()) {
+            return;
+        }
+        String tagModel = model == null || model.isBlank() ? "unknown" : model;
+        increment("llm.tokens", usage.path("prompt_tokens").asLong(),
+                "model", tagModel, "purpose", purpose, "type", "prompt");
+        increment("llm.tokens", usage.path("completion_tokens").asLong(),
+                "model", tagModel, "purpose", purpose, "type", "completion");
+    }
+
+    public void recordFallback(String reason) {
+        increment("chat.fallbacks", 1, "reason", reason);
+    }
+
+    private void increment(String name, long amount, String... tags) {
+        if (amount <= 0) {
+            return;
+        }
+        counters.computeIfAbsent(name + String.join("|", tags), key -> Counter.builder(name)
+                        .tags(tags)
+                        .register(registry))
+                .increment(amount);
+    }
+
+    private Timer stageTimer(String stage, boolean streamed) {
+        return stageTimers.computeIfAbsent(stage + (streamed ? "/stream" : "/sync"), key -> Timer.builder("chat.stage")
+                .description("Time spent in each stage of a chat request")
+                .tag("stage", stage)
+                .tag("streamed", String.valueOf(streamed))
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : Double.NaN;
+    }
+}
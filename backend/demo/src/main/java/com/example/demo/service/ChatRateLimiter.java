@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for chat messages that reach the paid upstream: a token bucket per
+ * user id (authenticated) or client IP (anonymous), then a global budget of LLM tokens
+ * per minute sized to the provider quota. Each message is charged an estimate of its
+ * prompt plus the completion limit, so the budget is an upper bound on real usage.
+ */
+@Component
+public class ChatRateLimiter {
+
+    // System prompt and a few history turns, roughly
+    private static final int PROMPT_OVERHEAD_CHARS = 2_000;
+
+    private final TokenBucketLimiter perUser;
+    private final TokenBucketLimiter perIp;
+    private final UpstreamTokenBudget upstreamBudget;
+    private final long completionTokens;
+
+    private final AtomicLong userThrottled = new AtomicLong();
+    private final AtomicLong anonymousThrottled = new AtomicLong();
+    private final AtomicLong budgetThrottled = new AtomicLong();
+
+    public ChatRateLimiter(
+            @Value("${chat.rate-limit.user.capacity:20}") long userCapacity,
+            @Value("${chat.rate-limit.anonymous.capacity:5}") long anonymousCapacity,
+            @Value("${chat.rate-limit.refill-period:PT1M}") Duration refillPeriod,
+            @Value("${chat.rate-limit.max-keys:100000}") int maxKeys,
+            @Value("${groq.budget.tokens-per-minute:12000}") long tokensPerMinute,
+            @Value("${groq.budget.completion-tokens:500}") long completionTokens) {
+        this.perUser = new TokenBucketLimiter(userCapacity, refillPeriod, maxKeys);
+        this.perIp = new TokenBucketLimiter(anonymousCapacity, refillPeriod, maxKeys);
+        this.upstreamBudget = new UpstreamTokenBudget(tokensPerMinute, Duration.ofMinutes(1));
+        this.completionTokens = completionTokens;
+    }
+
+    public void admitUser(Long userId, String message) {
+        admit(perUser, "user:" + userId, userThrottled, message);
+    }
+
+    public void admitAnonymous(String clientIp, String message) {
+        admit(perIp, "ip:" + clientIp, anonymousThrottled, message);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("userThrottled", userThrottled.get());
+        stats.put("anonymousThrottled", anonymousThrottled.get());
+        stats.put("budgetThrottled", budgetThrottled.get());
+        stats.put("budgetAvailableTokens", upstreamBudget.available());
+        stats.put("trackedUsers", perUser.trackedKeys());
+        stats.put("trackedIps", perIp.trackedKeys());
+        return stats;
+    }
+
+    private void admit(TokenBucketLimiter limiter, String key, AtomicLong throttled, String message) {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            throttled.incrementAndGet();
+            throw new TooManyRequestsException("You're sending messages too quickly, please slow down",
+                    toSeconds(waitNanos));
+        }
+
+        long budgetWait = upstreamBudget.tryAcquire(estimateTokens(message));
+        if (budgetWait > 0) {
+            // Not the caller's fault; give their permit back
+            limiter.release(key, 1);
+            budgetThrottled.incrementAndGet();
+            throw new TooManyRequestsException("Mood AI is very busy right now, please try again shortly",
+                    toSeconds(budgetWait));
+        }
+    }
+
+    long estimateTokens(String message) {
+        int chars = (message != null ? message.length() : 0) + PROMPT_OVERHEAD_CHARS;
+        // About four characters per token for English text
+        return chars / 4 + completionTokens;
+    }
+
+    private static long toSeconds(long nanos) {
+        return TimeUnit.NANOSECONDS.toSeconds(nanos) + 1;
+    }
+}
@@ -1,18 +1,25 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.ChatHistoryPage;
 import com.example.demo.dto.ChatRequest;
 import com.example.demo.dto.ChatResponse;
 import com.example.demo.model.Chat;
-import com.example.demo.model.User;
 import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -22,76 +29,189 @@ public class ChatService {
     private final ChatRepository chatRepository;
     private final UserRepository userRepository;
     private final OpenAIService openAIService;
+    private final SentimentAnalyzer sentimentAnalyzer;
+    private final TaskExecutor chatStreamExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final MoodRollupService moodRollupService;
+    private final ChatRateLimiter chatRateLimiter;
+    private final AnonymousResponseCache anonymousResponseCache;
+    private final PromptTemplates promptTemplates;
+    private final ChatWriteBehind chatWriteBehind;
+    private final ChatMetrics chatMetrics;
+
+    @Value("${chat.history.max-page-size:100}")
+    private int maxHistoryPageSize = 100;
+
+    /**
+     * Not transactional on purpose: the final insert runs in its own short transaction and
+     * the upstream call before it holds no JDBC connection, so pool usage does not grow
+     * with model latency. The user id comes from the authenticated principal.
+     *
+     * <p>Admission and sentiment run on the caller's thread; a rejected request throws
+     * {@link TooManyRequestsException} right away. The returned future completes once the
+     * chat is saved. While the upstream call is pending no thread is held, so the request
+     * thread goes back to the container in both thread modes; the insert then runs on the
+     * thread that completed the upstream call.
+     */
+    public CompletableFuture<ChatResponse> sendMessage(ChatRequest request, Long userId) {
+        chatMetrics.run("admission", false, () -> chatRateLimiter.admitUser(userId, request.getMessage()));
+
+        SentimentResult analysis = chatMetrics.time("sentiment", false,
+                () -> sentimentAnalyzer.analyze(request.getMessage()));
+        String sentiment = analysis.sentiment();
+        Double moodScore = analysis.moodScore();
+
+        // LLM phase - no transaction, no connection, no waiting thread
+        return chatMetrics.timeAsync("upstream", false, () -> openAIService.getChatResponse(
+                        request.getMessage(),
+                        userId.toString(),  // Important: Pass user ID
+                        sentiment,
+                        request.getMode()
+                ))
+                // Write phase
+                .thenApply(aiResponse -> chatMetrics.time("persistence", false,
+                        () -> saveChat(userId, request.getMessage(), aiResponse, sentiment, moodScore)))
+                .thenApply(this::mapToChatResponse);
+    }
 
-    @Transactional
-    public ChatResponse sendMessage(ChatRequest request, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Pass user ID for conversation context
-        String aiResponse = openAIService.getChatResponse(
-                request.getMessage(),
-                user.getId().toString()  // Important: Pass user ID
-        );
-
-        String sentiment = openAIService.analyzeSentiment(request.getMessage());
-        Double moodScore = openAIService.calculateMoodScore(sentiment);
-
-        Chat chat = new Chat();
-        chat.setUser(user);
-        chat.setMessage(request.getMessage());
-        chat.setResponse(aiResponse);
-        chat.setSentiment(sentiment);
-        chat.setMoodScore(moodScore);
-        chat.setIsAnonymous(false);
-
-        Chat savedChat = chatRepository.save(chat);
-
-        return mapToChatResponse(savedChat);
+    /**
+     * Streams the reply to {@code emitter} as "token" events while it is generated, then
+     * persists the chat and finishes with a single "done" event carrying the saved
+     * {@link ChatResponse}. If the reply fails part-way, an "error" event ends the stream
+     * instead and nothing is saved. The upstream call runs on the stream executor so the
+     * request thread is released as soon as this method returns.
+     */
+    public void streamMessage(ChatRequest request, Long userId, SseEmitter emitter) {
+        chatMetrics.run("admission", true, () -> chatRateLimiter.admitUser(userId, request.getMessage()));
+
+        chatStreamExecutor.execute(() -> {
+            try {
+                SentimentResult analysis = chatMetrics.time("sentiment", true,
+                        () -> sentimentAnalyzer.analyze(request.getMessage()));
+                String sentiment = analysis.sentiment();
+                Double moodScore = analysis.moodScore();
+
+                String aiResponse = chatMetrics.time("upstream", true, () -> openAIService.streamChatResponse(
+                        request.getMessage(),
+                        userId.toString(),
+                        sentiment,
+                        request.getMode(),
+                        token -> sendEvent(emitter, "token", token)
+                ));
+
+                Chat savedChat = chatMetrics.time("persistence", true,
+                        () -> saveChat(userId, request.getMessage(), aiResponse, sentiment, moodScore));
+
+                sendEvent(emitter, "done", mapToChatResponse(savedChat));
+                emitter.complete();
+            } catch (Exception e) {
+                // Nothing was saved; the client drops whatever tokens it already showed
+                log.error("❌ Chat stream failed: {}", e.getMessage());
+                sendEvent(emitter, "error", ApiResponse.error(e.getMessage()));
+                emitter.complete();
+            }
+        });
     }
-    @Transactional
-    public ChatResponse sendAnonymousMessage(ChatRequest request) {
-        // Get AI response (pass null for anonymous users - no conversation memory)
-        String aiResponse = openAIService.getChatResponse(request.getMessage(), null);  // ✅ FIXED
 
-        // Analyze sentiment
-        String sentiment = openAIService.analyzeSentiment(request.getMessage());
+    private Chat saveChat(Long userId, String message, String aiResponse, String sentiment, Double moodScore) {
+        if (chatWriteBehind.isEnabled()) {
+            return chatWriteBehind.submit(userId, message, aiResponse, sentiment, moodScore);
+        }
+        return transactionTemplate.execute(status -> {
+            Chat chat = new Chat();
+            chat.setUser(userRepository.getReferenceById(userId));
+            chat.setMessage(message);
+            chat.setResponse(aiResponse);
+            chat.setSentiment(sentiment);
+            chat.setMoodScore(moodScore);
+            chat.setIsAnonymous(false);
+
+            Chat saved = chatRepository.save(chat);
+            moodRollupService.recordChat(userId, saved.getCreatedAt(), sentiment, moodScore);
+            return saved;
+        });
+    }
 
-        // Calculate mood score
-        Double moodScore = openAIService.calculateMoodScore(sentiment);
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; keep generating so the chat is still saved to history
+            log.debug("SSE client disconnected: {}", e.getMessage());
+        }
+    }
 
-        // For anonymous chats, we don't save to database
-        return ChatResponse.builder()
-                .message(request.getMessage())
-                .response(aiResponse)
-                .sentiment(sentiment)
-                .moodScore(moodScore)
-                .build();
+    /**
+     * Completes with the reply without holding a thread while it is generated. Fails with
+     * {@link TooManyRequestsException} if the caller's allowance is used up.
+     */
+    public CompletableFuture<ChatResponse> sendAnonymousMessage(ChatRequest request, String clientIp) {
+        // Analyze sentiment and mood score in one pass
+        SentimentResult analysis = sentimentAnalyzer.analyze(request.getMessage());
+        String sentiment = analysis.sentiment();
+        Double moodScore = analysis.moodScore();
+
+        // Anonymous chats have no memory, so a repeated prompt gets the same reply without
+        // spending the caller's allowance or any upstream tokens, and a burst of the same
+        // prompt shares a single upstream call
+        String message = request.getMessage();
+        String prompt = promptTemplates.get(sentiment, request.getMode()).key();
+        return anonymousResponseCache
+                .getOrLoad(message, prompt, openAIService.modelParams(), () -> {
+                    chatRateLimiter.admitAnonymous(clientIp, message);
+                    // Pass null for anonymous users - no conversation memory
+                    return openAIService.requestChatResponse(message, null, sentiment, request.getMode());
+                })
+                // For anonymous chats, we don't save to database
+                .thenApply(reply -> ChatResponse.builder()
+                        .message(request.getMessage())
+                        .response(reply.orElseGet(() -> openAIService.getFallbackResponse(sentiment)))
+                        .sentiment(sentiment)
+                        .moodScore(moodScore)
+                        .build());
     }
 
-    public List<ChatResponse> getChatHistory(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * One page of history, newest first. {@code cursor} is the {@code nextCursor} of the
+     * previous page, or null for the first page; {@code size} is capped at
+     * {@code chat.history.max-page-size}.
+     */
+    public ChatHistoryPage getChatHistory(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxHistoryPageSize));
+        // One extra row tells us whether there is another page
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<ChatResponse> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = chatRepository.findHistoryPage(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = chatRepository.findHistoryPageBefore(userId, after.createdAt(), after.id(), limit);
+        }
 
-        List<Chat> chats = chatRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+        ChatResponse last = items.isEmpty() ? null : items.get(items.size() - 1);
 
-        return chats.stream()
-                .map(this::mapToChatResponse)
-                .collect(Collectors.toList());
+        return ChatHistoryPage.builder()
+                .items(items)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? new KeysetCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
     }
 
-    public void deleteChat(Long chatId, String userEmail) {
+    public void deleteChat(Long chatId, Long userId) {
         Chat chat = chatRepository.findById(chatId)
                 .orElseThrow(() -> new RuntimeException("Chat not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (!chat.getUser().getId().equals(user.getId())) {
+        if (!chat.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized to delete this chat");
         }
 
-        chatRepository.delete(chat);
+        transactionTemplate.executeWithoutResult(status -> {
+            chatRepository.delete(chat);
+            moodRollupService.removeChat(userId, chat.getCreatedAt(), chat.getSentiment(), chat.getMoodScore());
+        });
     }
 
     private ChatResponse mapToChatResponse(Chat chat) {
@@ -0,0 +1,235 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Chat;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional write-behind for finished chats ({@code chat.write-behind.enabled}). Chats are
+ * put on a bounded queue and a single writer thread inserts them in batches: a batch is
+ * written once it reaches {@code batch-size} or {@code flush-interval} after its first
+ * chat, whichever comes first, as one transaction with JDBC-batched inserts and one rollup
+ * upsert per user and per day.
+ *
+ * <p>When the queue is full the caller waits up to {@code offer-timeout}, then writes its
+ * chat itself, so a slow database pushes back on request threads instead of dropping
+ * chats. On shutdown the writer drains the queue before the data source goes away.
+ *
+ * <p>A queued chat has no id yet and is not visible in history until its batch commits.
+ */
+@Component
+@Slf4j
+public class ChatWriteBehind {
+
+    private static final PendingChat STOP = new PendingChat(null, null);
+
+    private final ChatRepository chatRepository;
+    private final UserRepository userRepository;
+    private final MoodRollupService moodRollupService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final BlockingQueue<PendingChat> queue;
+
+    private volatile boolean accepting;
+    private Thread writer;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder writtenInline = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public ChatWriteBehind(ChatRepository chatRepository,
+                           UserRepository userRepository,
+                           MoodRollupService moodRollupService,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${chat.write-behind.enabled:false}") boolean enabled,
+                           @Value("${chat.write-behind.queue-capacity:10000}") int queueCapacity,
+                           @Value("${chat.write-behind.batch-size:50}") int batchSize,
+                           @Value("${chat.write-behind.flush-interval:PT0.2S}") Duration flushInterval,
+                           @Value("${chat.write-behind.offer-timeout:PT1S}") Duration offerTimeout,
+                           @Value("${chat.write-behind.shutdown-timeout:PT30S}") Duration shutdownTimeout) {
+        this.chatRepository = chatRepository;
+        this.userRepository = userRepository;
+        this.moodRollupService = moodRollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutMs = offerTimeout.toMillis();
+        this.shutdownTimeoutMs = shutdownTimeout.toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        accepting = true;
+        writer = Thread.ofPlatform().name("chat-writer").daemon(true).start(this::run);
+        log.info("Chat write-behind enabled: batches of {}, queue of {}", batchSize, queue.remainingCapacity());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a chat for insertion and returns it unsaved: no id, {@code createdAt} already
+     * set. Falls back to writing it on this thread if the queue stays full.
+     */
+    public Chat submit(Long userId, String message, String response, String sentiment, Double moodScore) {
+        Chat chat = new Chat();
+        chat.setMessage(message);
+        chat.setResponse(response);
+        chat.setSentiment(sentiment);
+        chat.setMoodScore(moodScore);
+        chat.setIsAnonymous(false);
+        chat.setCreatedAt(LocalDateTime.now());
+        PendingChat pending = new PendingChat(userId, chat);
+
+        if (accepting) {
+            try {
+                if (queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    enqueued.increment();
+                    return chat;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writtenInline.increment();
+        write(List.of(pending));
+        return chat;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        accepting = false;
+        // Wakes the writer if it is waiting for chats; if the queue is full it is busy anyway
+        queue.offer(STOP);
+        writer.join(shutdownTimeoutMs);
+        // Whatever the writer did not get to, e.g. if it timed out
+        List<PendingChat> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.removeIf(pending -> pending == STOP);
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            write(rest.subList(from, Math.min(rest.size(), from + batchSize)));
+        }
+        log.info("Chat write-behind stopped, {} chats written", written.sum());
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queue.size());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount > 0 ? (double) written.sum() / batchCount : 0.0);
+        stats.put("writtenInline", writtenInline.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    private void run() {
+        List<PendingChat> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                PendingChat first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null || first == STOP) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.removeIf(pending -> pending == STOP) || batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingChat next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null || next == STOP) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                log.error("❌ Chat writer error: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * One transaction for the whole batch. If it fails, e.g. because one user was deleted
+     * in the meantime, the chats are retried one by one so only the bad ones are lost.
+     */
+    private void write(List<PendingChat> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Chat> chats = new ArrayList<>(batch.size());
+                for (PendingChat pending : batch) {
+                    Chat chat = pending.chat();
+                    chat.setId(null);
+                    chat.setUser(userRepository.getReferenceById(pending.userId()));
+                    chats.add(chat);
+                }
+                chatRepository.saveAll(chats);
+                chatRepository.flush();
+                moodRollupService.recordChats(chats);
+            });
+            written.add(batch.size());
+            batches.increment();
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed.increment();
+                log.error("❌ Could not save chat for user {}: {}", batch.get(0).userId(), e.getMessage());
+                return;
+            }
+            log.warn("⚠️ Chat batch of {} failed, writing one by one: {}", batch.size(), e.getMessage());
+            for (PendingChat pending : batch) {
+                write(List.of(pending));
+            }
+        }
+    }
+
+    private record PendingChat(Long userId, Chat chat) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker over a count-based sliding window of the last {@code windowSize} calls.
+ * Once at least {@code minimumCalls} are recorded and either the failure rate or the rate
+ * of calls slower than {@code slowCallNanos} reaches its threshold, the breaker opens and
+ * rejects calls for {@code openNanos}. It then lets {@code halfOpenCalls} trial calls
+ * through: if they all succeed it closes again with an empty window, any failure or slow
+ * trial opens it again.
+ *
+ * <p>Every {@link Permit} granted by {@link #tryAcquire()} must be handed back to exactly
+ * one of {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}. A permit belongs to
+ * the phase that granted it: once the breaker has moved on, its outcome is ignored, so a
+ * call let through while closed cannot count as a trial, nor a late trial reopen a breaker
+ * that has closed again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Permission for one call, issued during phase {@code phase} of the breaker. */
+    public record Permit(long phase) {
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    // Bumped on every state change, so permits from an earlier phase can be told apart
+    private long phase;
+    private final byte[] window;
+    private int windowIndex;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timesOpened = new AtomicLong();
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long slowCallNanos, long openNanos, int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallNanos;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.window = new byte[windowSize];
+    }
+
+    /** Null if the call must not be made because the breaker is open. */
+    public synchronized Permit tryAcquire() {
+        advance();
+        if (state == State.OPEN) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight + halfOpenSucceeded >= halfOpenCalls) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            halfOpenInFlight++;
+        }
+        return new Permit(phase);
+    }
+
+    public synchronized void onSuccess(Permit permit, long durationNanos) {
+        if (permit.phase() != phase) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+            if (slow) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(slow ? SLOW : 0);
+    }
+
+    public synchronized void onFailure(Permit permit, long durationNanos) {
+        if (permit.phase() != phase) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record((byte) (FAILED | (durationNanos >= slowCallNanos ? SLOW : 0)));
+    }
+
+    /** The call was granted but never reached the upstream, e.g. it was not admitted locally. */
+    public synchronized void onIgnored(Permit permit) {
+        if (permit.phase() == phase && state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+        }
+    }
+
+    /**
+     * Reports {@link State#HALF_OPEN} as soon as the open period is over, so callers that
+     * check the state before calling (like the LLM router) let the trial calls through.
+     */
+    public synchronized State state() {
+        advance();
+        return state;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        advance();
+        stats.put("state", state.name());
+        stats.put("windowCalls", recorded);
+        stats.put("failureRate", recorded > 0 ? (double) failures / recorded : 0.0);
+        stats.put("slowCallRate", recorded > 0 ? (double) slowCalls / recorded : 0.0);
+        stats.put("rejected", rejected.get());
+        stats.put("timesOpened", timesOpened.get());
+        return stats;
+    }
+
+    private void record(byte outcome) {
+        if (recorded == windowSize) {
+            byte evicted = window[windowIndex];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % windowSize;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+
+        if (recorded >= minimumCalls
+                && ((double) failures / recorded >= failureRateThreshold
+                || (double) slowCalls / recorded >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    private void advance() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            phase++;
+            halfOpenInFlight = 0;
+            halfOpenSucceeded = 0;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        phase++;
+        openedAt = System.nanoTime();
+        timesOpened.incrementAndGet();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        phase++;
+        recorded = 0;
+        windowIndex = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown instead of calling the upstream while its circuit breaker is open. A kind of
+ * {@link UpstreamBusyException}, so callers fall back the same way and at once.
+ */
+public class CircuitOpenException extends UpstreamBusyException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a list of turns for the shared store: a version byte, the turn count and
+ * then each message as UTF-8 prefixed with its length, all counts as unsigned varints.
+ * No field names or quoting, so a turn costs its text plus a few bytes.
+ */
+final class ConversationCodec {
+
+    private static final int VERSION = 1;
+
+    private ConversationCodec() {
+    }
+
+    static byte[] encode(List<ConversationTurn> turns) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(VERSION);
+        writeVarint(out, turns.size());
+        for (ConversationTurn turn : turns) {
+            writeString(out, turn.userMessage());
+            writeString(out, turn.assistantMessage());
+        }
+        return out.toByteArray();
+    }
+
+    static List<ConversationTurn> decode(byte[] data) {
+        int[] pos = {0};
+        int version = data[pos[0]++];
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported conversation encoding version " + version);
+        }
+        int count = readVarint(data, pos);
+        List<ConversationTurn> turns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String userMessage = readString(data, pos);
+            String assistantMessage = readString(data, pos);
+            turns.add(new ConversationTurn(userMessage, assistantMessage));
+        }
+        return turns;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(byte[] data, int[] pos) {
+        int length = readVarint(data, pos);
+        String value = new String(data, pos[0], length, StandardCharsets.UTF_8);
+        pos[0] += length;
+        return value;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
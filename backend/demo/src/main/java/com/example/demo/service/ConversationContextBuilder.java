@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the messages sent upstream so the prompt stays within
+ * {@code conversation.context.token-budget} tokens: the system prompt and the new message
+ * always go in, then the rolling summary of older turns, then as many of the most recent
+ * turns as still fit, newest first. Turns left out are handed to the
+ * {@link ConversationSummarizer}, so they end up in the summary instead of being lost.
+ *
+ * <p>The window holds at most one turn less than the conversation store keeps, so every
+ * turn is seen outside the window, and folded, before the store forgets it. Tokens are
+ * estimated at four characters each plus a few per message, which is close enough for
+ * budgeting.
+ */
+@Component
+@Slf4j
+public class ConversationContextBuilder {
+
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation with this user: ";
+
+    private final ConversationHistoryLoader conversationHistoryLoader;
+    private final ConversationStore conversationStore;
+    private final ConversationSummarizer conversationSummarizer;
+    private final int tokenBudget;
+
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong turnsIncluded = new AtomicLong();
+    private final AtomicLong turnsLeftOut = new AtomicLong();
+    private final AtomicLong summariesIncluded = new AtomicLong();
+
+    public ConversationContextBuilder(ConversationHistoryLoader conversationHistoryLoader,
+                                      ConversationStore conversationStore,
+                                      ConversationSummarizer conversationSummarizer,
+                                      @Value("${conversation.context.token-budget:1500}") int tokenBudget) {
+        this.conversationHistoryLoader = conversationHistoryLoader;
+        this.conversationStore = conversationStore;
+        this.conversationSummarizer = conversationSummarizer;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /** The system message first and the new user message last; {@code userId} may be null. */
+    public List<Object> build(PromptTemplates.PromptTemplate system, String userId, String userMessage) {
+        int tokens = messageTokens(system.text()) + messageTokens(userMessage);
+        List<Object> messages = new ArrayList<>();
+        messages.add(system.message());
+
+        if (userId != null) {
+            List<ConversationTurn> turns = conversationHistoryLoader.recentTurns(userId, conversationStore.getMaxTurns());
+
+            Optional<String> summary = conversationSummarizer.summary(userId);
+            if (summary.isPresent()) {
+                String content = SUMMARY_PREFIX + summary.get();
+                int summaryTokens = messageTokens(content);
+                if (tokens + summaryTokens <= tokenBudget) {
+                    messages.add(Map.of("role", "system", "content", content));
+                    tokens += summaryTokens;
+                    summariesIncluded.incrementAndGet();
+                }
+            }
+
+            int maxWindow = Math.max(1, conversationStore.getMaxTurns() - 1);
+            int start = turns.size();
+            while (start > 0 && turns.size() - start < maxWindow) {
+                ConversationTurn turn = turns.get(start - 1);
+                int turnTokens = messageTokens(turn.userMessage()) + messageTokens(turn.assistantMessage());
+                if (tokens + turnTokens > tokenBudget) {
+                    break;
+                }
+                tokens += turnTokens;
+                start--;
+            }
+
+            for (ConversationTurn turn : turns.subList(start, turns.size())) {
+                messages.add(Map.of("role", "user", "content", turn.userMessage()));
+                messages.add(Map.of("role", "assistant", "content", turn.assistantMessage()));
+            }
+            turnsIncluded.addAndGet(turns.size() - start);
+            if (start > 0) {
+                turnsLeftOut.addAndGet(start);
+                conversationSummarizer.fold(userId, turns.subList(0, start));
+            }
+        }
+
+        messages.add(Map.of("role", "user", "content", userMessage));
+        builds.incrementAndGet();
+        promptTokens.addAndGet(tokens);
+        log.debug("Built context of {} messages, ~{} tokens", messages.size(), tokens);
+        return messages;
+    }
+
+    public Map<String, Object> stats() {
+        long count = builds.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tokenBudget", tokenBudget);
+        stats.put("builds", count);
+        stats.put("averagePromptTokens", count > 0 ? (double) promptTokens.get() / count : 0.0);
+        stats.put("turnsIncluded", turnsIncluded.get());
+        stats.put("turnsLeftOut", turnsLeftOut.get());
+        stats.put("summariesIncluded", summariesIncluded.get());
+        return stats;
+    }
+
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private static int messageTokens(String content) {
+        return estimateTokens(content) + MESSAGE_OVERHEAD_TOKENS;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.ChatTurnView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds a user's conversation context from the chats table when nothing is cached for
+ * them, e.g. after a restart, after eviction or when the request lands on another node.
+ * Only the last few turns are read, with a limited query on the (user_id, created_at) index.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationHistoryLoader {
+
+    private final ChatRepository chatRepository;
+    private final ConversationStore conversationStore;
+
+    /**
+     * Cached turns if there are any, otherwise the latest stored turns, which are then
+     * put back into the cache. Oldest first.
+     */
+    public List<ConversationTurn> recentTurns(String userId, int maxTurns) {
+        List<ConversationTurn> cached = conversationStore.recentTurns(userId, maxTurns);
+        if (!cached.isEmpty()) {
+            return cached;
+        }
+
+        List<ChatTurnView> latest = chatRepository.findLatestTurns(
+                Long.valueOf(userId), PageRequest.of(0, conversationStore.getMaxTurns()));
+        if (latest.isEmpty()) {
+            return List.of();
+        }
+
+        List<ConversationTurn> turns = new ArrayList<>(latest.size());
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            turns.add(new ConversationTurn(latest.get(i).getMessage(), latest.get(i).getResponse()));
+        }
+        conversationStore.seed(userId, turns);
+        log.debug("Rehydrated {} turns for user {}", turns.size(), userId);
+
+        return turns.subList(Math.max(0, turns.size() - maxTurns), turns.size());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the last few turns of each user's conversation are kept between requests.
+ * Selected with {@code conversation.store}: {@code memory} (default) keeps them on the
+ * local node, {@code database} shares them between all nodes through the application
+ * database.
+ */
+public interface ConversationStore {
+
+    /**
+     * Up to {@code maxTurns} of the most recent turns, oldest first. An empty list means
+     * nothing is stored for this user.
+     */
+    List<ConversationTurn> recentTurns(String userId, int maxTurns);
+
+    void append(String userId, String userMessage, String assistantMessage);
+
+    /**
+     * Fills the history of a user that has none, e.g. from the chats table. Does nothing
+     * if turns were appended for the user in the meantime.
+     */
+    void seed(String userId, List<ConversationTurn> turns);
+
+    void clear(String userId);
+
+    int getMaxTurns();
+
+    Map<String, Object> stats();
+}
@@ -0,0 +1,223 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rolling per-user summary of the turns that no longer fit in the prompt. When turns fall
+ * out of the context window they are folded into the existing summary with one small
+ * completion that sees only the previous summary and the new turns, never the whole
+ * history. Folding runs on the upstream client's async path, so requests never wait for
+ * it; a request simply uses whatever summary is ready.
+ *
+ * <p>At most one fold per user is in flight, and at most {@code max-in-flight} overall;
+ * turns that could not be folded yet are picked up by a later request. Summaries are kept
+ * on the local node for up to {@code max-users} users in least-recently-used order.
+ */
+@Component
+@Slf4j
+public class ConversationSummarizer {
+
+    private static final String INSTRUCTIONS = """
+            You keep a short running summary of a conversation between a user and a \
+            supportive assistant. Merge the new exchanges into the current summary. Keep \
+            what matters for later replies: the user's situation, feelings, goals and \
+            anything they asked to be remembered. Drop small talk. Write in the third \
+            person, at most %d words, and reply with the summary only.""";
+    private static final double TEMPERATURE = 0.2;
+
+    private final LlmRouter llmRouter;
+    private final ChatMetrics chatMetrics;
+    private final boolean enabled;
+    private final int maxUsers;
+    private final int maxTokens;
+    private final int maxInFlight;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Summary> summaries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong folds = new AtomicLong();
+    private final AtomicLong foldedTurns = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private long evictions;
+
+    public ConversationSummarizer(LlmRouter llmRouter,
+                                  ChatMetrics chatMetrics,
+                                  @Value("${conversation.summary.enabled:true}") boolean enabled,
+                                  @Value("${conversation.summary.max-users:10000}") int maxUsers,
+                                  @Value("${conversation.summary.max-tokens:200}") int maxTokens,
+                                  @Value("${conversation.summary.max-in-flight:4}") int maxInFlight) {
+        this.llmRouter = llmRouter;
+        this.chatMetrics = chatMetrics;
+        this.enabled = enabled;
+        this.maxUsers = maxUsers;
+        this.maxTokens = maxTokens;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Optional<String> summary(String userId) {
+        lock.lock();
+        try {
+            Summary summary = summaries.get(userId);
+            return summary != null ? Optional.ofNullable(summary.text) : Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Folds the turns in {@code outOfWindow} (oldest first) that are not in the summary
+     * yet. Returns at once; the future completes when the summary has been updated, or
+     * straight away if there was nothing to do or folding has to wait.
+     */
+    public CompletableFuture<Void> fold(String userId, List<ConversationTurn> outOfWindow) {
+        if (!enabled || outOfWindow.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Summary summary;
+        List<ConversationTurn> pending;
+        String previous;
+        lock.lock();
+        try {
+            summary = summaries.get(userId);
+            if (summary == null) {
+                summary = new Summary();
+                summaries.put(userId, summary);
+                evict();
+            }
+            if (summary.folding) {
+                return CompletableFuture.completedFuture(null);
+            }
+            // The window only ever moves forward, so everything up to the last folded turn is in already
+            int start = summary.lastFolded != null ? outOfWindow.lastIndexOf(summary.lastFolded) + 1 : 0;
+            if (start >= outOfWindow.size()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                deferred.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }
+            summary.folding = true;
+            pending = List.copyOf(outOfWindow.subList(start, outOfWindow.size()));
+            previous = summary.text;
+        } finally {
+            lock.unlock();
+        }
+
+        Summary target = summary;
+        CompletableFuture<JsonNode> call;
+        try {
+            call = llmRouter.complete(requestBody(previous, pending));
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((response, ex) -> {
+            inFlight.decrementAndGet();
+            if (ex == null) {
+                chatMetrics.recordTokenUsage(response.path("model").asText(null), "summary", response.path("usage"));
+            }
+            JsonNode content = ex == null
+                    ? response.path("choices").path(0).path("message").path("content")
+                    : null;
+            String text = content != null && content.isTextual() ? content.asText().strip() : "";
+            lock.lock();
+            try {
+                target.folding = false;
+                if (text.isEmpty()) {
+                    failures.incrementAndGet();
+                    log.warn("⚠️ Could not summarize conversation of user {}: {}", userId,
+                            ex != null ? ex.getMessage() : "empty reply");
+                    return null;
+                }
+                // Cleared or evicted meanwhile: the summary belongs to a conversation that is gone
+                if (summaries.get(userId) == target) {
+                    target.text = text;
+                    target.lastFolded = pending.get(pending.size() - 1);
+                    folds.incrementAndGet();
+                    foldedTurns.addAndGet(pending.size());
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public void clear(String userId) {
+        lock.lock();
+        try {
+            summaries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        lock.lock();
+        try {
+            stats.put("users", summaries.size());
+            stats.put("evictions", evictions);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("inFlight", inFlight.get());
+        stats.put("folds", folds.get());
+        stats.put("foldedTurns", foldedTurns.get());
+        stats.put("failures", failures.get());
+        stats.put("deferred", deferred.get());
+        return stats;
+    }
+
+    private Map<String, Object> requestBody(String previous, List<ConversationTurn> turns) {
+        StringBuilder prompt = new StringBuilder("Current summary:\n")
+                .append(previous != null ? previous : "(none yet)")
+                .append("\n\nNew exchanges:");
+        for (ConversationTurn turn : turns) {
+            prompt.append("\nUser: ").append(turn.userMessage())
+                    .append("\nAssistant: ").append(turn.assistantMessage());
+        }
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("messages", List.of(
+                Map.of("role", "system", "content", INSTRUCTIONS.formatted(maxTokens * 3 / 4)),
+                Map.of("role", "user", "content", prompt.toString())));
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("temperature", TEMPERATURE);
+        return requestBody;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Summary>> it = summaries.entrySet().iterator();
+        while (summaries.size() > maxUsers && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** Guarded by the summarizer lock. */
+    private static final class Summary {
+        private String text;
+        private ConversationTurn lastFolded;
+        private boolean folding;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.service;
+
+/**
+ * One exchange of a conversation: what the user said and what the assistant answered.
+ */
+public record ConversationTurn(String userMessage, String assistantMessage) {
+}
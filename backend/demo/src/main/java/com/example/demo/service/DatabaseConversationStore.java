@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ConversationContext;
+import com.example.demo.repository.ConversationContextRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ConversationStore} shared by every backend node through the application database,
+ * so a user's context no longer depends on which node serves the request. Each user is one
+ * row holding the last {@code maxTurns} turns in {@link ConversationCodec} form; the row
+ * expires {@code ttl} after its last write. Appends lock the row, so two nodes writing for
+ * the same user cannot lose a turn.
+ */
+@Component
+@ConditionalOnProperty(name = "conversation.store", havingValue = "database")
+@Slf4j
+public class DatabaseConversationStore implements ConversationStore {
+
+    private final ConversationContextRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxTurns;
+    private final Duration ttl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong purged = new AtomicLong();
+
+    public DatabaseConversationStore(
+            ConversationContextRepository repository,
+            TransactionTemplate transactionTemplate,
+            @Value("${conversation.memory.max-turns:5}") int maxTurns,
+            @Value("${conversation.store.ttl:PT24H}") Duration ttl) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxTurns = maxTurns;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public List<ConversationTurn> recentTurns(String userId, int maxTurns) {
+        Optional<ConversationContext> context = repository.findById(Long.valueOf(userId))
+                .filter(c -> c.getExpiresAt().isAfter(LocalDateTime.now()));
+        if (context.isEmpty()) {
+            misses.incrementAndGet();
+            return List.of();
+        }
+        hits.incrementAndGet();
+        List<ConversationTurn> turns = ConversationCodec.decode(context.get().getTurns());
+        return turns.subList(Math.max(0, turns.size() - maxTurns), turns.size());
+    }
+
+    @Override
+    public void append(String userId, String userMessage, String assistantMessage) {
+        ConversationTurn turn = new ConversationTurn(userMessage, assistantMessage);
+        try {
+            write(Long.valueOf(userId), turn);
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the row first; it exists now, so this time we lock it
+            write(Long.valueOf(userId), turn);
+        }
+    }
+
+    private void write(Long userId, ConversationTurn turn) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            ConversationContext context = repository.findForUpdate(userId)
+                    .orElseGet(() -> new ConversationContext(userId, null, 0, now, null));
+
+            List<ConversationTurn> turns = context.getTurns() == null || context.getExpiresAt().isBefore(now)
+                    ? new ArrayList<>()
+                    : new ArrayList<>(ConversationCodec.decode(context.getTurns()));
+            turns.add(turn);
+            if (turns.size() > maxTurns) {
+                turns = turns.subList(turns.size() - maxTurns, turns.size());
+            }
+
+            store(context, turns, now);
+        });
+    }
+
+    @Override
+    public void seed(String userId, List<ConversationTurn> turns) {
+        if (turns.isEmpty()) {
+            return;
+        }
+        Long id = Long.valueOf(userId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                Optional<ConversationContext> existing = repository.findForUpdate(id);
+                if (existing.isPresent() && existing.get().getExpiresAt().isAfter(now)) {
+                    return;
+                }
+                ConversationContext context = existing.orElseGet(() -> new ConversationContext(id, null, 0, now, null));
+                store(context, turns.subList(Math.max(0, turns.size() - maxTurns), turns.size()), now);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Someone else created the context concurrently; theirs wins
+            log.debug("Skipped seeding context for user {}: already created", userId);
+        }
+    }
+
+    private void store(ConversationContext context, List<ConversationTurn> turns, LocalDateTime now) {
+        context.setTurns(ConversationCodec.encode(turns));
+        context.setTurnCount(turns.size());
+        context.setExpiresAt(now.plus(ttl));
+        repository.saveAndFlush(context);
+    }
+
+    @Override
+    public void clear(String userId) {
+        repository.deleteById(Long.valueOf(userId));
+    }
+
+    @Override
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    @Scheduled(fixedDelayString = "${conversation.store.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        Integer removed = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        if (removed != null && removed > 0) {
+            purged.addAndGet(removed);
+            log.info("Purged {} expired conversation contexts", removed);
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("store", "database");
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("purged", purged.get());
+        stats.put("ttlSeconds", ttl.toSeconds());
+        return stats;
+    }
+}
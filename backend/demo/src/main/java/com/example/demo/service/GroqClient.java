@@ -0,0 +1,438 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * HTTP client for one OpenAI-compatible chat completions endpoint, such as Groq. A single
+ * {@link HttpClient} keeps a pooled keep-alive connection to the upstream, every call has
+ * connect and read timeouts, and all calls go through an {@link UpstreamLimiter} so a slow
+ * upstream can only tie up a bounded number of callers.
+ *
+ * <p>Calls also pass a {@link CircuitBreaker}: when too many recent calls failed or were
+ * slow, calls fail at once with {@link CircuitOpenException} until the upstream has had
+ * time to recover. Transient failures (429, 5xx, I/O errors and timeouts) are retried with
+ * full-jitter exponential backoff, honouring a short Retry-After. With
+ * {@code groq.hedge.delay-ms} set, a completion still running after that delay gets a
+ * second, hedged request and the first good answer wins.
+ *
+ * <p>Instances are created by {@link LlmRouter}, one per configured endpoint. Every
+ * {@code groq.http.*}, {@code groq.retry.*}, {@code groq.hedge.*} and
+ * {@code groq.breaker.*} setting can be overridden for one endpoint as
+ * {@code llm.provider.<name>.http.*} and so on.
+ */
+@Slf4j
+public class GroqClient implements LlmProvider {
+
+    private final String name;
+    private final String apiUrl;
+    private final String apiKey;
+    private final String model;
+
+    private final long connectTimeoutMs;
+    private final long readTimeoutMs;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+    private final int maxAttempts;
+    private final long retryBaseDelayMs;
+    private final long retryMaxDelayMs;
+    /** 0 turns hedging off. */
+    private final long hedgeDelayMs;
+
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final UpstreamLimiter limiter;
+    private final CircuitBreaker breaker;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public GroqClient(String name, String apiUrl, String apiKey, String model,
+                      ObjectMapper objectMapper, Environment environment) {
+        this.name = name;
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.model = model;
+        this.objectMapper = objectMapper;
+
+        connectTimeoutMs = setting(environment, "http.connect-timeout-ms", Long.class, 5_000L);
+        readTimeoutMs = setting(environment, "http.read-timeout-ms", Long.class, 30_000L);
+        maxInFlight = setting(environment, "http.max-in-flight", Integer.class, 32);
+        maxQueued = setting(environment, "http.max-queued", Integer.class, 64);
+        queueTimeoutMs = setting(environment, "http.queue-timeout-ms", Long.class, 2_000L);
+        maxAttempts = setting(environment, "retry.max-attempts", Integer.class, 3);
+        retryBaseDelayMs = setting(environment, "retry.base-delay-ms", Long.class, 200L);
+        retryMaxDelayMs = setting(environment, "retry.max-delay-ms", Long.class, 2_000L);
+        hedgeDelayMs = setting(environment, "hedge.delay-ms", Long.class, 0L);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Response handling and dependent stages run on virtual threads
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        httpClient = builder.build();
+        limiter = new UpstreamLimiter(maxInFlight, maxQueued, queueTimeoutMs);
+        breaker = new CircuitBreaker(
+                setting(environment, "breaker.window-size", Integer.class, 50),
+                setting(environment, "breaker.minimum-calls", Integer.class, 10),
+                setting(environment, "breaker.failure-rate-threshold", Double.class, 0.5),
+                setting(environment, "breaker.slow-call-rate-threshold", Double.class, 0.8),
+                TimeUnit.MILLISECONDS.toNanos(setting(environment, "breaker.slow-call-ms", Long.class, 10_000L)),
+                TimeUnit.MILLISECONDS.toNanos(setting(environment, "breaker.open-ms", Long.class, 30_000L)),
+                setting(environment, "breaker.half-open-calls", Integer.class, 3));
+    }
+
+    private <T> T setting(Environment environment, String key, Class<T> type, T defaultValue) {
+        T shared = environment.getProperty("groq." + key, type, defaultValue);
+        return environment.getProperty("llm.provider." + name + "." + key, type, shared);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    /** False only while the breaker is open; true again once it lets trial calls through. */
+    @Override
+    public boolean isAvailable() {
+        return breaker.state() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Sends a completion request without blocking the caller. The returned future fails with
+     * {@link UpstreamBusyException} when the call is not admitted (including
+     * {@link CircuitOpenException}) and with {@link UpstreamHttpException} on a non-2xx
+     * answer that retries did not fix.
+     */
+    @Override
+    public CompletableFuture<JsonNode> complete(Map<String, Object> requestBody) {
+        HttpRequest request = buildRequest(requestBody);
+        return withRetries(() -> hedged(request), 1);
+    }
+
+    /**
+     * Sends a streaming completion request and hands every server-sent line to
+     * {@code onLine} as it arrives. Blocks the calling thread until the stream ends,
+     * holding one upstream slot for the whole duration, and fails with
+     * {@link HttpTimeoutException} if no line arrives for {@code groq.http.read-timeout-ms}.
+     * Only failures before the first line are retried, so the caller never sees a line twice.
+     */
+    @Override
+    public void stream(Map<String, Object> requestBody, Consumer<String> onLine) throws IOException, InterruptedException {
+        HttpRequest request = buildRequest(requestBody);
+        for (int attempt = 1; ; attempt++) {
+            AtomicBoolean delivered = new AtomicBoolean();
+            try {
+                streamOnce(request, line -> {
+                    delivered.set(true);
+                    onLine.accept(line);
+                });
+                return;
+            } catch (IOException | UpstreamHttpException e) {
+                long delay = delivered.get() ? -1 : retryDelayMs(e, attempt);
+                if (delay < 0) {
+                    throw e;
+                }
+                retries.increment();
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = limiter.stats();
+        stats.put("circuitBreaker", breaker.stats());
+        stats.put("retries", retries.sum());
+        stats.put("hedges", hedges.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        return stats;
+    }
+
+    private CompletableFuture<JsonNode> withRetries(Supplier<CompletableFuture<JsonNode>> call, int attempt) {
+        return call.get().exceptionallyCompose(ex -> {
+            Throwable cause = unwrap(ex);
+            long delay = retryDelayMs(cause, attempt);
+            if (delay < 0) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            retries.increment();
+            return CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(v -> withRetries(call, attempt + 1));
+        });
+    }
+
+    /**
+     * The first successful answer of the primary request and, if the primary is still
+     * running after the hedge delay, one hedged copy. Fails only when every request that
+     * was started failed. The slower request is left to finish on its own.
+     */
+    private CompletableFuture<JsonNode> hedged(HttpRequest request) {
+        CompletableFuture<JsonNode> primary = attempt(request);
+        if (hedgeDelayMs <= 0) {
+            return primary;
+        }
+        CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        race(primary, result, running, false);
+        CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            // A primary that already failed is the retry policy's business, not a hedge's
+            if (result.isDone() || running.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+                return;
+            }
+            hedges.increment();
+            race(attempt(request), result, running, true);
+        });
+        return result;
+    }
+
+    private void race(CompletableFuture<JsonNode> call, CompletableFuture<JsonNode> result,
+                      AtomicInteger running, boolean hedge) {
+        call.whenComplete((value, ex) -> {
+            if (ex == null) {
+                if (result.complete(value) && hedge) {
+                    hedgeWins.increment();
+                }
+            } else if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(unwrap(ex));
+            }
+        });
+    }
+
+    /** One request through the breaker and the limiter. */
+    private CompletableFuture<JsonNode> attempt(HttpRequest request) {
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            return CompletableFuture.failedFuture(new CircuitOpenException("Groq circuit breaker is open"));
+        }
+        return limiter.acquire()
+                .whenComplete((slot, ex) -> {
+                    if (ex != null) {
+                        breaker.onIgnored(permit);
+                    }
+                })
+                .thenCompose(slot -> {
+                    long start = System.nanoTime();
+                    return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                            .whenComplete((response, ex) -> limiter.release())
+                            .thenApply(response -> {
+                                checkStatus(response.statusCode(), response.body(), response.headers());
+                                try {
+                                    return objectMapper.readTree(response.body());
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            })
+                            .whenComplete((json, ex) -> recordOutcome(permit, System.nanoTime() - start, ex));
+                });
+    }
+
+    private void streamOnce(HttpRequest request, Consumer<String> onLine) throws IOException, InterruptedException {
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            throw new CircuitOpenException("Groq circuit breaker is open");
+        }
+        try {
+            limiter.acquire().join();
+        } catch (CompletionException e) {
+            breaker.onIgnored(permit);
+            throw (e.getCause() instanceof RuntimeException re) ? re : e;
+        }
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            // A stream is as long as the reply, so only the wait for its headers counts as slow
+            long latency = System.nanoTime() - start;
+            try (IdleDeadline deadline = new IdleDeadline(response.body());
+                 BufferedReader body = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                if (response.statusCode() / 100 != 2) {
+                    StringJoiner error = new StringJoiner("\n");
+                    deadline.forEachLine(body, error::add);
+                    checkStatus(response.statusCode(), error.toString(), response.headers());
+                }
+                deadline.forEachLine(body, onLine);
+            }
+            breaker.onSuccess(permit, latency);
+        } catch (IOException | RuntimeException e) {
+            recordOutcome(permit, System.nanoTime() - start, e);
+            throw e;
+        } catch (InterruptedException e) {
+            breaker.onIgnored(permit);
+            throw e;
+        } finally {
+            limiter.release();
+        }
+    }
+
+    /**
+     * The request timeout only covers the wait for the headers. This closes a streamed body
+     * once no line has arrived for {@code readTimeoutMs}, so a stream that stalls part-way
+     * fails with {@link HttpTimeoutException} instead of holding its thread and upstream slot.
+     */
+    private final class IdleDeadline implements AutoCloseable {
+
+        private final InputStream body;
+        private volatile long lastLineNanos = System.nanoTime();
+        private volatile boolean expired;
+        private volatile boolean closed;
+
+        IdleDeadline(InputStream body) {
+            this.body = body;
+            checkAfter(readTimeoutMs);
+        }
+
+        void forEachLine(BufferedReader reader, Consumer<String> onLine) throws IOException {
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    lastLineNanos = System.nanoTime();
+                    onLine.accept(line);
+                    // Time spent handing the line on is not the upstream's
+                    lastLineNanos = System.nanoTime();
+                }
+            } catch (IOException e) {
+                if (!expired) {
+                    throw e;
+                }
+            }
+            if (expired) {
+                throw new HttpTimeoutException("No data from upstream for " + readTimeoutMs + " ms");
+            }
+        }
+
+        private void checkAfter(long delayMs) {
+            CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(this::check);
+        }
+
+        private void check() {
+            if (closed) {
+                return;
+            }
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastLineNanos);
+            if (idleMs < readTimeoutMs) {
+                checkAfter(readTimeoutMs - idleMs);
+                return;
+            }
+            expired = true;
+            try {
+                // Unblocks the reading thread
+                body.close();
+            } catch (IOException ignored) {
+                // Closing is all that matters
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /** Only upstream trouble trips the breaker; a 400 says nothing about its health. */
+    private void recordOutcome(CircuitBreaker.Permit permit, long durationNanos, Throwable ex) {
+        if (ex != null && isTransient(unwrap(ex))) {
+            breaker.onFailure(permit, durationNanos);
+        } else {
+            breaker.onSuccess(permit, durationNanos);
+        }
+    }
+
+    /** Backoff before the next attempt, or -1 if the failure should not be retried. */
+    private long retryDelayMs(Throwable cause, int attempt) {
+        if (attempt >= maxAttempts || !isTransient(cause)) {
+            return -1;
+        }
+        long cap = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        if (cause instanceof UpstreamHttpException http && http.getRetryAfterSeconds() >= 0) {
+            long hinted = TimeUnit.SECONDS.toMillis(http.getRetryAfterSeconds());
+            if (hinted > retryMaxDelayMs) {
+                // Not worth holding the caller that long; let the fallback answer instead
+                return -1;
+            }
+            delay = Math.max(delay, hinted);
+        }
+        return delay;
+    }
+
+    static boolean isTransient(Throwable cause) {
+        if (cause instanceof UpstreamHttpException http) {
+            return http.getStatusCode() == 429 || http.getStatusCode() / 100 == 5;
+        }
+        // Includes connect failures and HttpTimeoutException
+        return cause instanceof IOException;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    /** The body is sent with this endpoint's model. */
+    private HttpRequest buildRequest(Map<String, Object> requestBody) {
+        Map<String, Object> body = new LinkedHashMap<>(requestBody);
+        body.put("model", model);
+        try {
+            return HttpRequest.newBuilder(URI.create(apiUrl))
+                    .timeout(Duration.ofMillis(readTimeoutMs))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkStatus(int statusCode, String body, HttpHeaders headers) {
+        if (statusCode / 100 != 2) {
+            long retryAfter = headers.firstValue("Retry-After")
+                    .filter(value -> value.chars().allMatch(Character::isDigit) && !value.isEmpty())
+                    .map(Long::parseLong)
+                    .orElse(-1L);
+            throw new UpstreamHttpException(statusCode, "Groq API returned " + statusCode + ": "
+                    + body.substring(0, Math.min(200, body.length())), retryAfter);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node-local {@link ConversationStore}, the default. Each user gets a ring buffer of the last
+ * {@code maxTurns} exchanges; users are kept in least-recently-used order and evicted when
+ * there are more than {@code maxUsers}, when the estimated heap use exceeds
+ * {@code maxBytes}, or after {@code idleTtl} without activity.
+ *
+ * <p>All access goes through one lock. Every operation is O(1) apart from copying at most
+ * {@code maxTurns} turns, so the lock is held only briefly, and two tabs of the same user
+ * can no longer corrupt a shared list.
+ */
+@Component
+@ConditionalOnProperty(name = "conversation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConversationStore implements ConversationStore {
+
+    // Rough per-entry overhead: map node, buffer, turn records and string headers
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+    private static final long TURN_OVERHEAD_BYTES = 96;
+
+    private final int maxUsers;
+    private final int maxTurns;
+    private final long maxBytes;
+    private final long idleTtlNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Buffer> buffers = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public InMemoryConversationStore(
+            @Value("${conversation.memory.max-users:10000}") int maxUsers,
+            @Value("${conversation.memory.max-turns:5}") int maxTurns,
+            @Value("${conversation.memory.max-bytes:67108864}") long maxBytes,
+            @Value("${conversation.memory.idle-ttl:PT30M}") Duration idleTtl) {
+        this.maxUsers = maxUsers;
+        this.maxTurns = maxTurns;
+        this.maxBytes = maxBytes;
+        this.idleTtlNanos = idleTtl.toNanos();
+    }
+
+    @Override
+    public List<ConversationTurn> recentTurns(String userId, int maxTurns) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Buffer buffer = buffers.get(userId);
+            if (buffer != null && now - buffer.lastAccess > idleTtlNanos) {
+                remove(userId);
+                expirations++;
+                buffer = null;
+            }
+            if (buffer == null) {
+                misses++;
+                return List.of();
+            }
+            hits++;
+            buffer.lastAccess = now;
+            return buffer.last(maxTurns);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void append(String userId, String userMessage, String assistantMessage) {
+        ConversationTurn turn = new ConversationTurn(userMessage, assistantMessage);
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Buffer buffer = buffers.get(userId);
+            if (buffer == null) {
+                buffer = new Buffer(maxTurns);
+                buffers.put(userId, buffer);
+                totalBytes += ENTRY_OVERHEAD_BYTES;
+            }
+            buffer.lastAccess = now;
+            totalBytes += buffer.add(turn);
+            evict(now, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void seed(String userId, List<ConversationTurn> turns) {
+        if (turns.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (buffers.containsKey(userId)) {
+                return;
+            }
+            Buffer buffer = new Buffer(maxTurns);
+            buffer.lastAccess = now;
+            for (ConversationTurn turn : turns) {
+                totalBytes += buffer.add(turn);
+            }
+            buffers.put(userId, buffer);
+            totalBytes += ENTRY_OVERHEAD_BYTES;
+            evict(now, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    @Override
+    public void clear(String userId) {
+        lock.lock();
+        try {
+            remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("store", "memory");
+        lock.lock();
+        try {
+            stats.put("users", buffers.size());
+            stats.put("estimatedBytes", totalBytes);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("evictions", evictions);
+            stats.put("expirations", expirations);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxUsers", maxUsers);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    private void evict(long now, String keep) {
+        Iterator<Map.Entry<String, Buffer>> it = buffers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Buffer> eldest = it.next();
+            boolean expired = now - eldest.getValue().lastAccess > idleTtlNanos;
+            boolean overBudget = buffers.size() > maxUsers || totalBytes > maxBytes;
+            if (!expired && !overBudget || eldest.getKey().equals(keep)) {
+                return;
+            }
+            totalBytes -= ENTRY_OVERHEAD_BYTES + eldest.getValue().bytes;
+            it.remove();
+            if (expired) {
+                expirations++;
+            } else {
+                evictions++;
+            }
+        }
+    }
+
+    private static long estimatedBytes(ConversationTurn turn) {
+        return TURN_OVERHEAD_BYTES + 2L * (turn.userMessage().length() + turn.assistantMessage().length());
+    }
+
+    private void remove(String userId) {
+        Buffer removed = buffers.remove(userId);
+        if (removed != null) {
+            totalBytes -= ENTRY_OVERHEAD_BYTES + removed.bytes;
+        }
+    }
+
+    /** Fixed-size ring buffer of turns; only touched while holding the memory lock. */
+    private static final class Buffer {
+        private final ConversationTurn[] turns;
+        private int head;
+        private int size;
+        private long bytes;
+        private long lastAccess;
+
+        private Buffer(int capacity) {
+            this.turns = new ConversationTurn[capacity];
+        }
+
+        /** Adds a turn, overwriting the oldest when full; returns the change in bytes. */
+        private long add(ConversationTurn turn) {
+            long delta = estimatedBytes(turn);
+            int slot = (head + size) % turns.length;
+            if (size == turns.length) {
+                delta -= estimatedBytes(turns[head]);
+                head = (head + 1) % turns.length;
+            } else {
+                size++;
+            }
+            turns[slot] = turn;
+            bytes += delta;
+            return delta;
+        }
+
+        private List<ConversationTurn> last(int count) {
+            int n = Math.min(count, size);
+            List<ConversationTurn> result = new ArrayList<>(n);
+            for (int i = size - n; i < size; i++) {
+                result.add(turns[(head + i) % turns.length]);
+            }
+            return result;
+        }
+    }
+}
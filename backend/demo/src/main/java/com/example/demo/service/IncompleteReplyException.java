@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a streamed reply breaks off after part of it was already sent to the client.
+ * The partial reply is neither remembered nor saved, and the client is told to discard it.
+ */
+public class IncompleteReplyException extends RuntimeException {
+    public IncompleteReplyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+
+/**
+ * The verified contents of an access token. {@code userId} is null for tokens issued
+ * before the id was added to them.
+ */
+public record JwtClaims(Long userId, String email, String role, Instant expiresAt) {
+}
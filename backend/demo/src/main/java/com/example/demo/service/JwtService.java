@@ -4,25 +4,64 @@ import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Issues and verifies access tokens. The signing key and parser are built once; verified
+ * tokens are remembered for a short while (keyed by a SHA-256 of the token, never past
+ * its expiry) so repeated requests with the same token skip the parse and HMAC check.
+ * Tokens of deleted users are refused until they would have expired anyway.
+ */
 @Service
 public class JwtService {
-    @Value("${jwt.secret}")
-    private String secret;
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final Long expiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    private final int cacheMaxEntries;
+    private final long cacheTtlMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Insertion order: the oldest verification is evicted first
+    private final LinkedHashMap<ByteBuffer, CachedClaims> verified = new LinkedHashMap<>();
+    private long hits;
+    private long misses;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // user id -> epoch millis after which none of that user's tokens can still be valid
+    private final ConcurrentHashMap<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    public JwtService(
+            @Value("${jwt.secret}") String secret,
+            @Value("${jwt.expiration}") Long expiration,
+            @Value("${jwt.cache.max-entries:10000}") int cacheMaxEntries,
+            @Value("${jwt.cache.ttl:PT1M}") Duration cacheTtl) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.cacheTtlMillis = cacheTtl.toMillis();
     }
 
-    public String generateToken(String email, String role) {
+    public String generateToken(Long userId, String email, String role) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put("uid", userId);
         claims.put("role", role);
 
         return Jwts.builder()
@@ -30,36 +69,129 @@ public class JwtService {
                 .setSubject(email)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String generateToken(String email) {
-        return generateToken(email, "USER");
+    public String generateToken(Long userId, String email) {
+        return generateToken(userId, email, "USER");
     }
 
-    public String extractEmail(String token) {
-        return getClaims(token).getSubject();
+    /**
+     * Verifies the token once and returns its claims, or empty if it is malformed, badly
+     * signed or expired.
+     */
+    public Optional<JwtClaims> verify(String token) {
+        return lookup(token).filter(claims -> !isRevoked(claims.userId()));
     }
 
-    public String extractRole(String token) {
-        return getClaims(token).get("role", String.class);
+    /**
+     * Refuses every token of the user from now on; call once the user is deleted.
+     *
+     * <p>Revocations live in this node's memory only. After a restart, or on another
+     * instance, a deleted user's unexpired token carrying a user id is accepted again until it
+     * expires ({@code jwt.expiration}); only tokens without a user id are still checked
+     * against the database. Keep {@code jwt.expiration} short or share revocations (e.g. in
+     * the database) before running more than one instance.
+     */
+    public void revokeUser(Long userId) {
+        long now = System.currentTimeMillis();
+        revokedUsers.values().removeIf(until -> until <= now);
+        revokedUsers.put(userId, now + expiration);
     }
 
-    public boolean validateToken(String token) {
-        try {
-            getClaims(token);
-            return true;
-        } catch (JwtException e) {
+    private boolean isRevoked(Long userId) {
+        if (userId == null) {
             return false;
         }
+        Long until = revokedUsers.get(userId);
+        return until != null && System.currentTimeMillis() < until;
+    }
+
+    private Optional<JwtClaims> lookup(String token) {
+        if (cacheMaxEntries <= 0) {
+            return parse(token);
+        }
+
+        ByteBuffer key = hash(token);
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            CachedClaims cached = verified.get(key);
+            if (cached != null && now < cached.validUntil) {
+                hits++;
+                return Optional.of(cached.claims);
+            }
+            if (cached != null) {
+                verified.remove(key);
+            }
+            misses++;
+        } finally {
+            lock.unlock();
+        }
+
+        Optional<JwtClaims> claims = parse(token);
+        claims.ifPresent(c -> remember(key, c, now));
+        return claims;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("size", verified.size());
+            stats.put("maxEntries", cacheMaxEntries);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<JwtClaims> parse(String token) {
+        try {
+            Claims claims = getClaims(token);
+            Instant expiresAt = claims.getExpiration() != null ? claims.getExpiration().toInstant() : null;
+            Number userId = claims.get("uid", Number.class);
+            return Optional.of(new JwtClaims(userId != null ? userId.longValue() : null,
+                    claims.getSubject(), claims.get("role", String.class), expiresAt));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void remember(ByteBuffer key, JwtClaims claims, long now) {
+        long validUntil = now + cacheTtlMillis;
+        if (claims.expiresAt() != null) {
+            validUntil = Math.min(validUntil, claims.expiresAt().toEpochMilli());
+        }
+
+        lock.lock();
+        try {
+            verified.put(key, new CachedClaims(claims, validUntil));
+            Iterator<CachedClaims> oldest = verified.values().iterator();
+            while (verified.size() > cacheMaxEntries && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedClaims(JwtClaims claims, long validUntil) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a list ordered by (createdAt, id), newest first: the last row already
+ * returned. Handed to clients as an opaque URL-safe string.
+ */
+record KeysetCursor(LocalDateTime createdAt, Long id) {
+
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Null for a missing cursor, i.e. the first page. */
+    static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.indexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, split)),
+                    Long.valueOf(raw.substring(split + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over a fixed list of lowercase terms. Matching is a single pass
+ * over the input with one table lookup per character and no allocation. Only whole-word
+ * matches are reported, and where several terms end at the same position only the longest
+ * one is, so "feel down" does not also count as "down".
+ *
+ * <p>The alphabet is ASCII letters (case-insensitive), the apostrophe and whitespace; any
+ * other character resets the automaton, which also makes it a word boundary.
+ */
+public final class KeywordMatcher {
+
+    private static final int APOSTROPHE = 26;
+    private static final int SPACE = 27;
+    private static final int ALPHABET = 28;
+
+    @FunctionalInterface
+    public interface MatchHandler {
+        void onMatch(int termId, int start, int end);
+    }
+
+    private final int[][] next;
+    private final int[] termAt;
+    private final int[] depth;
+    private final int[] outputLink;
+
+    private KeywordMatcher(int[][] next, int[] termAt, int[] depth, int[] outputLink) {
+        this.next = next;
+        this.termAt = termAt;
+        this.depth = depth;
+        this.outputLink = outputLink;
+    }
+
+    /**
+     * Builds the automaton; the id reported for a match is the term's index in {@code terms}.
+     */
+    public static KeywordMatcher compile(List<String> terms) {
+        List<int[]> gotoTable = new ArrayList<>();
+        List<Integer> termAt = new ArrayList<>();
+        List<Integer> depth = new ArrayList<>();
+        gotoTable.add(newRow());
+        termAt.add(-1);
+        depth.add(0);
+
+        for (int id = 0; id < terms.size(); id++) {
+            String term = terms.get(id);
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int cls = classOf(term.charAt(i));
+                if (cls < 0) {
+                    throw new IllegalArgumentException("Unsupported character in term: " + term);
+                }
+                if (gotoTable.get(state)[cls] < 0) {
+                    gotoTable.get(state)[cls] = gotoTable.size();
+                    gotoTable.add(newRow());
+                    termAt.add(-1);
+                    depth.add(i + 1);
+                }
+                state = gotoTable.get(state)[cls];
+            }
+            termAt.set(state, id);
+        }
+
+        int states = gotoTable.size();
+        int[][] next = gotoTable.toArray(new int[0][]);
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        int[] terms0 = termAt.stream().mapToInt(Integer::intValue).toArray();
+        int[] depths = depth.stream().mapToInt(Integer::intValue).toArray();
+
+        // Breadth-first: turn the trie into a DFA and link every state to the nearest
+        // proper suffix that is itself a complete term
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            if (next[0][c] < 0) {
+                next[0][c] = 0;
+            } else {
+                fail[next[0][c]] = 0;
+                queue.add(next[0][c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int suffix = fail[state];
+            outputLink[state] = terms0[suffix] >= 0 ? suffix : outputLink[suffix];
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = next[state][c];
+                if (child < 0) {
+                    next[state][c] = next[suffix][c];
+                } else {
+                    fail[child] = next[suffix][c];
+                    queue.add(child);
+                }
+            }
+        }
+
+        return new KeywordMatcher(next, terms0, depths, outputLink);
+    }
+
+    public void match(CharSequence text, MatchHandler handler) {
+        int length = text.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            int cls = classOf(text.charAt(i));
+            if (cls < 0) {
+                state = 0;
+                continue;
+            }
+            state = next[state][cls];
+
+            int end = i + 1;
+            if (end < length && isWordChar(text.charAt(end))) {
+                continue;
+            }
+            for (int s = termAt[state] >= 0 ? state : outputLink[state]; s > 0; s = outputLink[s]) {
+                int start = end - depth[s];
+                if (start == 0 || !isWordChar(text.charAt(start - 1))) {
+                    handler.onMatch(termAt[s], start, end);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int classOf(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c == '\'' || c == '’') {
+            return APOSTROPHE;
+        }
+        if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            return SPACE;
+        }
+        return -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+}
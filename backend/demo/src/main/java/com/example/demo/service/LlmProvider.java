@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * One chat completions backend. Request bodies are OpenAI-style without a model; each
+ * provider sends them with its own {@link #model()}. Completions answer with an
+ * OpenAI-style JSON body and streams with OpenAI-style server-sent lines.
+ */
+public interface LlmProvider {
+
+    String name();
+
+    String model();
+
+    CompletableFuture<JsonNode> complete(Map<String, Object> requestBody);
+
+    void stream(Map<String, Object> requestBody, Consumer<String> onLine) throws IOException, InterruptedException;
+
+    /** False while the provider knows it cannot serve calls, e.g. its breaker is open. */
+    boolean isAvailable();
+
+    Map<String, Object> getStats();
+}
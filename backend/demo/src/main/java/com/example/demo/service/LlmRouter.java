@@ -0,0 +1,318 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sends chat completions to one of the configured {@link LlmProvider}s and fails over to
+ * the next one when a provider is down, throttled or busy.
+ *
+ * <p>Providers are listed in {@code llm.providers} (default {@code groq}, which uses
+ * {@code groq.api.url} and {@code groq.api.key}); each is configured under
+ * {@code llm.provider.<name>.}: {@code type} ({@code openai} or {@code stub}), {@code url},
+ * {@code api-key}, {@code model} and an optional {@code tokens-per-minute} quota.
+ *
+ * <p>For every call the available providers with enough quota left are ranked by their
+ * recent latency, the mean of p50 and p99 over the last {@value #SAMPLES} calls, inflated
+ * by their recent error rate. A provider with fewer than {@value #MIN_SAMPLES} samples is
+ * tried first so it gets measured, and {@code llm.router.explore-ratio} of calls go to a
+ * random provider so the numbers of the others do not go stale. Ties keep the configured
+ * order.
+ */
+@Component
+@Slf4j
+public class LlmRouter {
+
+    static final int SAMPLES = 128;
+    static final int MIN_SAMPLES = 5;
+    private static final String DEFAULT_MODEL = "llama-3.3-70b-versatile";
+
+    private final List<Route> routes = new ArrayList<>();
+    private final double exploreRatio;
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public LlmRouter(ObjectMapper objectMapper, Environment environment) {
+        for (String name : environment.getProperty("llm.providers", "groq").split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                routes.add(new Route(provider(name, objectMapper, environment),
+                        environment.getProperty("llm.provider." + name + ".tokens-per-minute", Long.class, 0L)));
+            }
+        }
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("llm.providers lists no providers");
+        }
+        exploreRatio = environment.getProperty("llm.router.explore-ratio", Double.class, 0.05);
+        log.info("LLM providers: {}", routes.stream().map(r -> r.provider.name() + "=" + r.provider.model()).toList());
+    }
+
+    private static LlmProvider provider(String name, ObjectMapper objectMapper, Environment environment) {
+        String prefix = "llm.provider." + name + ".";
+        String type = environment.getProperty(prefix + "type", "openai");
+        if ("stub".equals(type)) {
+            return new StubLlmProvider(name,
+                    environment.getProperty(prefix + "latency-ms", Long.class, 0L),
+                    environment.getProperty(prefix + "fail", Boolean.class, false),
+                    objectMapper);
+        }
+        if (!"openai".equals(type)) {
+            throw new IllegalStateException("Unknown LLM provider type '" + type + "' for " + name);
+        }
+        boolean groq = "groq".equals(name);
+        String url = environment.getProperty(prefix + "url", groq ? environment.getProperty("groq.api.url") : null);
+        String apiKey = environment.getProperty(prefix + "api-key", groq ? environment.getProperty("groq.api.key") : null);
+        if (url == null || apiKey == null) {
+            throw new IllegalStateException(prefix + "url and " + prefix + "api-key must be set");
+        }
+        return new GroqClient(name, url, apiKey, environment.getProperty(prefix + "model", DEFAULT_MODEL),
+                objectMapper, environment);
+    }
+
+    /**
+     * Completes on the best provider, failing over on upstream trouble. Fails with the last
+     * provider's error, or with {@link UpstreamBusyException} if none could be tried.
+     */
+    public CompletableFuture<JsonNode> complete(Map<String, Object> requestBody) {
+        return attempt(requestBody, estimateTokens(requestBody), candidates(), 0, null);
+    }
+
+    /**
+     * Streams from the best provider. Fails over only while nothing has been handed to
+     * {@code onLine}, so the caller never gets two partial replies.
+     */
+    public void stream(Map<String, Object> requestBody, Consumer<String> onLine) throws IOException, InterruptedException {
+        long tokens = estimateTokens(requestBody);
+        List<Route> candidates = candidates();
+        AtomicBoolean delivered = new AtomicBoolean();
+        Exception lastFailure = null;
+        for (Route route : candidates) {
+            if (!route.reserve(tokens)) {
+                continue;
+            }
+            if (lastFailure != null) {
+                failovers.incrementAndGet();
+            }
+            long start = System.nanoTime();
+            try {
+                route.provider.stream(requestBody, line -> {
+                    delivered.set(true);
+                    onLine.accept(line);
+                });
+                route.record(System.nanoTime() - start, null);
+                return;
+            } catch (IOException | RuntimeException e) {
+                route.record(System.nanoTime() - start, e);
+                if (delivered.get() || !canFailOver(e)) {
+                    throw e;
+                }
+                log.warn("⚠️ LLM provider {} failed ({}), trying the next one", route.provider.name(), e.getMessage());
+                lastFailure = e;
+            }
+        }
+        exhausted.incrementAndGet();
+        if (lastFailure instanceof IOException io) {
+            throw io;
+        }
+        throw lastFailure instanceof RuntimeException re ? re : new UpstreamBusyException("No LLM provider available");
+    }
+
+    /** Identifies the models a reply may come from, for caches keyed on them. */
+    public String modelsKey() {
+        return String.join(",", routes.stream().map(r -> r.provider.model()).toList());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> providers = new LinkedHashMap<>();
+        for (Route route : routes) {
+            providers.put(route.provider.name(), route.stats());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("providers", providers);
+        stats.put("failovers", failovers.get());
+        stats.put("exhausted", exhausted.get());
+        return stats;
+    }
+
+    private CompletableFuture<JsonNode> attempt(Map<String, Object> requestBody, long tokens,
+                                                List<Route> candidates, int index, Throwable lastFailure) {
+        while (index < candidates.size() && !candidates.get(index).reserve(tokens)) {
+            index++;
+        }
+        if (index >= candidates.size()) {
+            exhausted.incrementAndGet();
+            return CompletableFuture.failedFuture(lastFailure != null ? lastFailure
+                    : new UpstreamBusyException("No LLM provider available"));
+        }
+        if (lastFailure != null) {
+            failovers.incrementAndGet();
+        }
+        Route route = candidates.get(index);
+        int next = index + 1;
+        long start = System.nanoTime();
+        return route.provider.complete(requestBody)
+                .whenComplete((json, ex) -> route.record(System.nanoTime() - start, ex == null ? null : unwrap(ex)))
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (!canFailOver(cause)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    log.warn("⚠️ LLM provider {} failed ({}), trying the next one", route.provider.name(), cause.getMessage());
+                    return attempt(requestBody, tokens, candidates, next, cause);
+                });
+    }
+
+    /** Available providers, best first. */
+    private List<Route> candidates() {
+        List<Route> candidates = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            if (route.provider.isAvailable()) {
+                candidates.add(route);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Route::score));
+        if (candidates.size() > 1 && ThreadLocalRandom.current().nextDouble() < exploreRatio) {
+            candidates.add(0, candidates.remove(ThreadLocalRandom.current().nextInt(1, candidates.size())));
+        }
+        return candidates;
+    }
+
+    /** Upstream trouble another provider may not have; a bad request would fail everywhere. */
+    private static boolean canFailOver(Throwable cause) {
+        return cause instanceof UpstreamBusyException || GroqClient.isTransient(cause);
+    }
+
+    /** Same rule of thumb as the chat rate limiter: about four characters per token. */
+    static long estimateTokens(Map<String, Object> requestBody) {
+        long chars = 0;
+        if (requestBody.get("messages") instanceof List<?> messages) {
+            for (Object message : messages) {
+                if (message instanceof Map<?, ?> map) {
+                    chars += String.valueOf(map.get("content")).length();
+                } else if (message instanceof RawValue raw) {
+                    chars += String.valueOf(raw.rawValue()).length();
+                }
+            }
+        }
+        long completion = requestBody.get("max_tokens") instanceof Number n ? n.longValue() : 0;
+        return chars / 4 + completion;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    /** A provider with its quota and rolling latency and error numbers. */
+    private static final class Route {
+
+        private final LlmProvider provider;
+        private final UpstreamTokenBudget quota;
+
+        // Guarded by this
+        private final long[] latencies = new long[SAMPLES];
+        private int latencyCount;
+        private int latencyIndex;
+        private final boolean[] errors = new boolean[SAMPLES];
+        private int outcomeCount;
+        private int outcomeIndex;
+        private int errorCount;
+
+        private volatile int samples;
+        private volatile double p50Ms;
+        private volatile double p99Ms;
+        private volatile double errorRate;
+
+        private final AtomicLong selected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong overQuota = new AtomicLong();
+
+        Route(LlmProvider provider, long tokensPerMinute) {
+            this.provider = provider;
+            this.quota = tokensPerMinute > 0 ? new UpstreamTokenBudget(tokensPerMinute, Duration.ofMinutes(1)) : null;
+        }
+
+        boolean reserve(long tokens) {
+            if (quota != null && quota.tryAcquire(tokens) > 0) {
+                overQuota.incrementAndGet();
+                return false;
+            }
+            selected.incrementAndGet();
+            return true;
+        }
+
+        double score() {
+            if (samples < MIN_SAMPLES) {
+                return 0;
+            }
+            return (p50Ms + p99Ms) / 2 / (1 - Math.min(errorRate, 0.95));
+        }
+
+        synchronized void record(long durationNanos, Throwable failure) {
+            boolean error = failure != null && canFailOver(failure);
+            if (error) {
+                failed.incrementAndGet();
+            }
+            if (outcomeCount == SAMPLES) {
+                errorCount -= errors[outcomeIndex] ? 1 : 0;
+            } else {
+                outcomeCount++;
+            }
+            errors[outcomeIndex] = error;
+            errorCount += error ? 1 : 0;
+            outcomeIndex = (outcomeIndex + 1) % SAMPLES;
+            errorRate = (double) errorCount / outcomeCount;
+
+            if (failure != null) {
+                return;
+            }
+            latencies[latencyIndex] = durationNanos;
+            latencyIndex = (latencyIndex + 1) % SAMPLES;
+            latencyCount = Math.min(latencyCount + 1, SAMPLES);
+            samples = latencyCount;
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            p50Ms = sorted[(latencyCount - 1) / 2] / 1_000_000.0;
+            p99Ms = sorted[(int) Math.ceil(latencyCount * 0.99) - 1] / 1_000_000.0;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("model", provider.model());
+            stats.put("available", provider.isAvailable());
+            stats.put("p50Ms", p50Ms);
+            stats.put("p99Ms", p99Ms);
+            stats.put("errorRate", errorRate);
+            stats.put("selected", selected.get());
+            stats.put("failed", failed.get());
+            if (quota != null) {
+                stats.put("quotaRemaining", quota.available());
+                stats.put("overQuota", overQuota.get());
+            }
+            stats.put("client", provider.getStats());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Chat;
+import com.example.demo.model.UserMoodRollup;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.DailyMoodRollupRepository;
+import com.example.demo.repository.MoodTotalsView;
+import com.example.demo.repository.UserMoodRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the per-user and per-day mood rollups in step with the chats table and serves
+ * analytics from them, so reads cost one row per user or one row per day and stripe
+ * instead of a scan over every chat.
+ * <p>
+ * {@link #recordChat} and {@link #removeChat} must run inside the transaction that
+ * writes the chat, so the rollups commit or roll back together with it. Both touch the
+ * user row before the daily row, the same order everywhere, so writers cannot deadlock.
+ * <p>
+ * The rollup tables start empty on a database that already has chats. Until the startup
+ * check ({@link #needsRebuild}, then {@link #markReady}) has run, reads aggregate the chats
+ * table instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MoodRollupService {
+
+    static final int DAILY_STRIPES = 8;
+
+    private final UserMoodRollupRepository userMoodRollupRepository;
+    private final DailyMoodRollupRepository dailyMoodRollupRepository;
+    private final ChatRepository chatRepository;
+
+    private volatile boolean ready;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChat(Long userId, LocalDateTime createdAt, String sentiment, Double moodScore) {
+        apply(userId, createdAt, sentiment, moodScore, 1);
+    }
+
+    /**
+     * Adds a batch of saved chats with one upsert per user and one per day and stripe,
+     * rather than two per chat. Users go first, in id order, then the daily rows.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChats(List<Chat> chats) {
+        Map<Long, Totals> users = new TreeMap<>();
+        Map<DayStripe, Totals> days = new TreeMap<>();
+        for (Chat chat : chats) {
+            Long userId = chat.getUser().getId();
+            LocalDate day = chat.getCreatedAt() != null ? chat.getCreatedAt().toLocalDate() : LocalDate.now();
+            users.computeIfAbsent(userId, id -> new Totals()).add(chat.getSentiment(), chat.getMoodScore());
+            days.computeIfAbsent(new DayStripe(day, stripeOf(userId)), key -> new Totals())
+                    .add(chat.getSentiment(), chat.getMoodScore());
+        }
+        users.forEach((userId, t) -> userMoodRollupRepository.addTotals(userId,
+                t.chats, t.positive, t.negative, t.neutral, t.moodSum, t.moodCount));
+        days.forEach((key, t) -> dailyMoodRollupRepository.addTotals(key.day(), key.stripe(),
+                t.chats, t.positive, t.negative, t.neutral, t.moodSum, t.moodCount));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeChat(Long userId, LocalDateTime createdAt, String sentiment, Double moodScore) {
+        apply(userId, createdAt, sentiment, moodScore, -1);
+    }
+
+    /**
+     * Takes all of a user's chats out of the rollups; call before the user is deleted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeUser(Long userId) {
+        int stripe = stripeOf(userId);
+        for (MoodTotalsView day : chatRepository.sumByDayForUser(userId)) {
+            dailyMoodRollupRepository.addTotals(day.getBucketDate(), stripe,
+                    -orZero(day.getChatCount()), -orZero(day.getPositiveCount()),
+                    -orZero(day.getNegativeCount()), -orZero(day.getNeutralCount()),
+                    -orZero(day.getMoodScoreSum()), -orZero(day.getMoodScoreCount()));
+        }
+        userMoodRollupRepository.deleteRow(userId);
+    }
+
+    /**
+     * Recomputes both rollups from the chats table, e.g. after sentiments were re-scored.
+     */
+    @Transactional
+    public Map<String, Object> rebuild() {
+        userMoodRollupRepository.deleteAllRows();
+        dailyMoodRollupRepository.deleteAllRows();
+        int users = userMoodRollupRepository.rebuildFromChats();
+        int days = dailyMoodRollupRepository.rebuildFromChats(DAILY_STRIPES);
+        log.info("Mood rollups rebuilt: {} user rows, {} daily rows", users, days);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("userRows", users);
+        result.put("dailyRows", days);
+        return result;
+    }
+
+    /**
+     * True when the rollups are empty but the chats table is not, as on the first start
+     * after upgrading a database that predates the rollups.
+     */
+    @Transactional(readOnly = true)
+    public boolean needsRebuild() {
+        return userMoodRollupRepository.count() == 0
+                && dailyMoodRollupRepository.count() == 0
+                && chatRepository.count() > 0;
+    }
+
+    /**
+     * Switches reads over to the rollups; call once they are known to be filled.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getGlobalSummary(int days) {
+        LocalDate since = LocalDate.now().minusDays(days - 1L);
+        Map<String, Object> summary = toSummary(ready ? dailyMoodRollupRepository.sumAll() : chatRepository.sumAll());
+
+        List<MoodTotalsView> rows = ready
+                ? dailyMoodRollupRepository.sumByDaySince(since)
+                : chatRepository.sumByDayBetween(since.atStartOfDay(), LocalDate.now().plusDays(1).atStartOfDay());
+        List<Map<String, Object>> daily = rows.stream()
+                .map(day -> {
+                    Map<String, Object> entry = toSummary(day);
+                    entry.put("date", day.getBucketDate());
+                    return entry;
+                })
+                .toList();
+        summary.put("daily", daily);
+        return summary;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUserSummary(Long userId) {
+        if (!ready) {
+            return toSummary(chatRepository.sumForUser(userId));
+        }
+        UserMoodRollup rollup = userMoodRollupRepository.findById(userId)
+                .orElseGet(() -> new UserMoodRollup(userId, 0, 0, 0, 0, 0.0, 0));
+        return toSummary(rollup.getChatCount(), rollup.getPositiveCount(), rollup.getNegativeCount(),
+                rollup.getNeutralCount(), rollup.getMoodScoreSum(), rollup.getMoodScoreCount());
+    }
+
+    private void apply(Long userId, LocalDateTime createdAt, String sentiment, Double moodScore, int sign) {
+        long positive = "POSITIVE".equals(sentiment) ? sign : 0;
+        long negative = "NEGATIVE".equals(sentiment) ? sign : 0;
+        long neutral = positive == 0 && negative == 0 ? sign : 0;
+        double moodSum = moodScore != null ? sign * moodScore : 0.0;
+        long moodCount = moodScore != null ? sign : 0;
+        LocalDate day = createdAt != null ? createdAt.toLocalDate() : LocalDate.now();
+
+        userMoodRollupRepository.addTotals(userId, sign, positive, negative, neutral, moodSum, moodCount);
+        dailyMoodRollupRepository.addTotals(day, stripeOf(userId), sign, positive, negative, neutral, moodSum, moodCount);
+    }
+
+    private Map<String, Object> toSummary(MoodTotalsView totals) {
+        return toSummary(orZero(totals.getChatCount()), orZero(totals.getPositiveCount()),
+                orZero(totals.getNegativeCount()), orZero(totals.getNeutralCount()),
+                orZero(totals.getMoodScoreSum()), orZero(totals.getMoodScoreCount()));
+    }
+
+    private Map<String, Object> toSummary(long chats, long positive, long negative, long neutral,
+                                          double moodScoreSum, long moodScoreCount) {
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        distribution.put("POSITIVE", positive);
+        distribution.put("NEGATIVE", negative);
+        distribution.put("NEUTRAL", neutral);
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalChats", chats);
+        summary.put("sentimentDistribution", distribution);
+        summary.put("averageMoodScore", moodScoreCount > 0 ? moodScoreSum / moodScoreCount : 0.0);
+        return summary;
+    }
+
+    private static int stripeOf(Long userId) {
+        return (int) Math.floorMod(userId, (long) DAILY_STRIPES);
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private record DayStripe(LocalDate day, int stripe) implements Comparable<DayStripe> {
+        @Override
+        public int compareTo(DayStripe other) {
+            int byDay = day.compareTo(other.day);
+            return byDay != 0 ? byDay : Integer.compare(stripe, other.stripe);
+        }
+    }
+
+    private static final class Totals {
+        long chats;
+        long positive;
+        long negative;
+        long neutral;
+        double moodSum;
+        long moodCount;
+
+        void add(String sentiment, Double moodScore) {
+            chats++;
+            if ("POSITIVE".equals(sentiment)) {
+                positive++;
+            } else if ("NEGATIVE".equals(sentiment)) {
+                negative++;
+            } else {
+                neutral++;
+            }
+            if (moodScore != null) {
+                moodSum += moodScore;
+                moodCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatMessageView;
+import com.example.demo.repository.ChatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recomputes sentiment and mood score for every stored chat with the current
+ * {@link SentimentAnalyzer}. Rows are read in id order, one chunk at a time (keyset, not
+ * offset), and each chunk is written back as one JDBC batch in its own transaction, so
+ * memory use and lock time stay constant however large the table is. The mood rollups
+ * are rebuilt once the last chunk is written.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MoodScoreBackfillService {
+
+    @Value("${mood.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    private final ChatRepository chatRepository;
+    private final SentimentAnalyzer sentimentAnalyzer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MoodRollupService moodRollupService;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    /**
+     * Starts the backfill on a background thread. Returns false if one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        processed.set(0);
+        lastId.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        error = null;
+
+        Thread.ofPlatform().name("mood-backfill").daemon(true).start(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                log.error("❌ Mood score backfill failed after id {}: {}", lastId.get(), e.getMessage());
+                error = e.getMessage();
+            } finally {
+                finishedAt = LocalDateTime.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    void run() {
+        log.info("Starting mood score backfill in chunks of {}", chunkSize);
+        while (true) {
+            List<ChatMessageView> chunk = chatRepository.findMessagesAfterId(lastId.get(), PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> updates = chunk.stream()
+                    .map(row -> {
+                        SentimentResult result = sentimentAnalyzer.analyze(row.getMessage());
+                        return new Object[]{result.sentiment(), result.moodScore(), row.getId()};
+                    })
+                    .toList();
+
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate("UPDATE chats SET sentiment = ?, mood_score = ? WHERE id = ?", updates));
+
+            lastId.set(chunk.get(chunk.size() - 1).getId());
+            processed.addAndGet(chunk.size());
+        }
+        log.info("Mood score backfill finished: {} chats", processed.get());
+
+        // Sentiments and scores changed underneath the rollups, so recount them.
+        moodRollupService.rebuild();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("processed", processed.get());
+        status.put("lastId", lastId.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("error", error);
+        return status;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.MoodTrendPoint;
+import com.example.demo.dto.MoodTrendResponse;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.DailyMoodRollupRepository;
+import com.example.demo.repository.MoodHourlyTotalsView;
+import com.example.demo.repository.MoodTotalsView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mood score and sentiment counts per hour, day or week. The database does the grouping
+ * (per-day rollups for the global daily and weekly views, a grouped range scan over chats
+ * otherwise, also for the global views until the rollups are ready), so the response holds
+ * one point per bucket whatever the number of chats.
+ */
+@Service
+@RequiredArgsConstructor
+public class MoodTrendService {
+
+    private final ChatRepository chatRepository;
+    private final DailyMoodRollupRepository dailyMoodRollupRepository;
+    private final MoodRollupService moodRollupService;
+
+    @Value("${trends.max-buckets:1000}")
+    private int maxBuckets = 1000;
+
+    @Transactional(readOnly = true)
+    public MoodTrendResponse getUserTrend(Long userId, String granularity, LocalDateTime from, LocalDateTime to) {
+        TrendGranularity unit = TrendGranularity.parse(granularity);
+        Range range = range(unit, from, to);
+
+        List<? extends MoodTotalsView> rows = unit == TrendGranularity.HOUR
+                ? chatRepository.sumByHourForUserBetween(userId, range.from(), range.to())
+                : chatRepository.sumByDayForUserBetween(userId, range.from(), range.to());
+        return buildResponse(unit, range, rows);
+    }
+
+    @Transactional(readOnly = true)
+    public MoodTrendResponse getGlobalTrend(String granularity, LocalDateTime from, LocalDateTime to) {
+        TrendGranularity unit = TrendGranularity.parse(granularity);
+        Range range = range(unit, from, to);
+
+        List<? extends MoodTotalsView> rows;
+        if (unit == TrendGranularity.HOUR) {
+            rows = chatRepository.sumByHourBetween(range.from(), range.to());
+        } else if (moodRollupService.isReady()) {
+            rows = dailyMoodRollupRepository.sumByDayBetween(range.from().toLocalDate(), range.to().toLocalDate());
+        } else {
+            rows = chatRepository.sumByDayBetween(range.from(), range.to());
+        }
+        return buildResponse(unit, range, rows);
+    }
+
+    private Range range(TrendGranularity unit, LocalDateTime from, LocalDateTime to) {
+        // Without an explicit end the range runs through the current, still open bucket
+        LocalDateTime end = to != null ? unit.ceil(to) : unit.next(unit.floor(LocalDateTime.now()));
+        LocalDateTime start = from != null ? unit.floor(from) : unit.minus(end, unit.defaultBuckets());
+
+        if (!start.isBefore(end)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+        long buckets = unit.bucketsBetween(start, end);
+        if (buckets > maxBuckets) {
+            throw new RuntimeException("Range too large: " + buckets + " buckets, at most " + maxBuckets
+                    + " allowed; use a coarser granularity or a shorter range");
+        }
+        return new Range(start, end);
+    }
+
+    private MoodTrendResponse buildResponse(TrendGranularity unit, Range range, List<? extends MoodTotalsView> rows) {
+        Map<LocalDateTime, Bucket> buckets = new LinkedHashMap<>();
+        for (LocalDateTime t = range.from(); t.isBefore(range.to()); t = unit.next(t)) {
+            buckets.put(t, new Bucket());
+        }
+
+        Bucket total = new Bucket();
+        for (MoodTotalsView row : rows) {
+            Integer hour = row instanceof MoodHourlyTotalsView hourly ? hourly.getBucketHour() : null;
+            Bucket bucket = buckets.get(unit.bucketOf(row.getBucketDate(), hour));
+            if (bucket != null) {
+                bucket.add(row);
+                total.add(row);
+            }
+        }
+
+        List<MoodTrendPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach((start, bucket) -> points.add(MoodTrendPoint.builder()
+                .bucketStart(start)
+                .chatCount(bucket.chats)
+                .positiveCount(bucket.positive)
+                .negativeCount(bucket.negative)
+                .neutralCount(bucket.neutral)
+                .averageMoodScore(bucket.averageMoodScore())
+                .build()));
+
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        distribution.put("POSITIVE", total.positive);
+        distribution.put("NEGATIVE", total.negative);
+        distribution.put("NEUTRAL", total.neutral);
+
+        return MoodTrendResponse.builder()
+                .granularity(unit.name())
+                .from(range.from())
+                .to(range.to())
+                .points(points)
+                .totalChats(total.chats)
+                .sentimentDistribution(distribution)
+                .averageMoodScore(total.averageMoodScore())
+                .build();
+    }
+
+    private record Range(LocalDateTime from, LocalDateTime to) {
+    }
+
+    private static final class Bucket {
+        long chats;
+        long positive;
+        long negative;
+        long neutral;
+        double moodScoreSum;
+        long moodScoreCount;
+
+        void add(MoodTotalsView row) {
+            chats += orZero(row.getChatCount());
+            positive += orZero(row.getPositiveCount());
+            negative += orZero(row.getNegativeCount());
+            neutral += orZero(row.getNeutralCount());
+            moodScoreSum += row.getMoodScoreSum() != null ? row.getMoodScoreSum() : 0.0;
+            moodScoreCount += orZero(row.getMoodScoreCount());
+        }
+
+        Double averageMoodScore() {
+            return moodScoreCount > 0 ? moodScoreSum / moodScoreCount : null;
+        }
+
+        private static long orZero(Long value) {
+            return value != null ? value : 0L;
+        }
+    }
+}
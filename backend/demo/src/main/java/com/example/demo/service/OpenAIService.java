@@ -1,212 +1,236 @@
 package com.example.demo.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class OpenAIService {
 
-    @Value("${groq.api.key}")
-    private String apiKey;
+    private final ObjectMapper objectMapper;
+    private final LlmRouter llmRouter;
+    private final ConversationStore conversationStore;
+    private final ConversationContextBuilder conversationContextBuilder;
+    private final ConversationSummarizer conversationSummarizer;
+    private final PromptTemplates promptTemplates;
+    private final ChatMetrics chatMetrics;
 
-    @Value("${groq.api.url}")
-    private String apiUrl;
+    private static final int MAX_TOKENS = 500;
+    private static final double TEMPERATURE = 0.9;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final Map<String, List<Map<String, String>>> conversationMemory = new ConcurrentHashMap<>();
+    /** Identifies the model settings a reply is produced with, for caches keyed on them. */
+    public String modelParams() {
+        return llmRouter.modelsKey() + "|" + MAX_TOKENS + "|" + TEMPERATURE;
+    }
+
+    public CompletableFuture<String> getChatResponse(String userMessage, String userId, String sentiment, String mode) {
+        return requestChatResponse(userMessage, userId, sentiment, mode)
+                .thenApply(reply -> reply.orElseGet(() -> getFallbackResponse(sentiment)));
+    }
 
-    public String getChatResponse(String userMessage, String userId) {
+    /**
+     * Asks Groq for a reply. Completes empty when the upstream fails or answers with no
+     * content, so callers can tell a real reply from the canned fallback; never completes
+     * exceptionally. No thread waits for the upstream in the meantime: the reply is read
+     * and remembered on the thread that completes the HTTP call.
+     */
+    public CompletableFuture<Optional<String>> requestChatResponse(String userMessage, String userId, String sentiment, String mode) {
         try {
             log.info("🔵 ========================================");
             log.info("🔵 User Message: {}", userMessage);
             log.info("🔵 User ID: {}", userId);
-            log.info("🔵 API URL: {}", apiUrl);
 
-            String sentiment = analyzeSentiment(userMessage);
             log.info("🔵 Detected Sentiment: {}", sentiment);
 
-            List<Map<String, String>> messages = buildConversation(userMessage, userId, sentiment);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
+            List<Object> messages = buildConversation(userMessage, userId, sentiment, mode);
 
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "llama-3.3-70b-versatile");
-            requestBody.put("messages", messages);
-            requestBody.put("max_tokens", 500);
-            requestBody.put("temperature", 0.9);
+            log.info("🚀 Calling LLM provider...");
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            log.info("🚀 Calling Groq API...");
-
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
+            return llmRouter.complete(buildRequestBody(messages, false)).handle((response, error) -> {
+                if (error != null) {
+                    return upstreamFailed(error);
+                }
+                try {
+                    return readReply(response, userMessage, userId);
+                } catch (Exception e) {
+                    return upstreamFailed(e);
+                }
+            });
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(upstreamFailed(e));
+        }
+    }
 
-            log.info("✅ Groq Response Status: {}", response.getStatusCode());
+    private Optional<String> readReply(JsonNode response, String userMessage, String userId) {
+        chatMetrics.recordTokenUsage(response.path("model").asText(null), "chat", response.path("usage"));
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.getBody().get("choices");
-                if (!choices.isEmpty()) {
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    String aiResponse = (String) message.get("content");
+        log.info("✅ Groq Response received");
 
-                    log.info("🎯 AI Response Generated: {} characters", aiResponse.length());
-                    log.info("🎯 First 100 chars: {}", aiResponse.substring(0, Math.min(100, aiResponse.length())));
+        JsonNode choices = response.path("choices");
+        if (choices.isArray() && !choices.isEmpty()) {
+            JsonNode content = choices.get(0).path("message").path("content");
+            if (content.isTextual()) {
+                String aiResponse = content.asText();
 
-                    if (userId != null) {
-                        storeConversation(userId, userMessage, aiResponse);
-                    }
+                log.info("🎯 AI Response Generated: {} characters", aiResponse.length());
+                log.info("🎯 First 100 chars: {}", aiResponse.substring(0, Math.min(100, aiResponse.length())));
 
-                    return aiResponse;
+                if (userId != null) {
+                    storeConversation(userId, userMessage, aiResponse);
                 }
+
+                return Optional.of(aiResponse);
             }
+        }
 
-            log.warn("⚠️ No valid response from Groq, using fallback");
-            return getFallbackResponse(sentiment);
+        log.warn("⚠️ No valid response from Groq, using fallback");
+        chatMetrics.recordFallback("empty_reply");
+        return Optional.empty();
+    }
 
-        } catch (Exception e) {
-            log.error("❌ Groq API Error: {}", e.getMessage());
-            log.error("❌ Error Type: {}", e.getClass().getName());
-            log.error("❌ Full Stack Trace: ", e);
-            return getFallbackResponse(analyzeSentiment(userMessage));
+    private Optional<String> upstreamFailed(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof UpstreamBusyException) {
+            log.warn("⚠️ Groq call rejected: {}", cause.getMessage());
+        } else if (cause instanceof UpstreamHttpException || cause instanceof IOException) {
+            // Expected upstream trouble, already retried; no stack trace needed
+            log.error("❌ Groq API Error: {}", cause.getMessage());
+        } else {
+            log.error("❌ Groq API Error: {}", cause.getMessage());
+            log.error("❌ Error Type: {}", cause.getClass().getName());
+            log.error("❌ Full Stack Trace: ", cause);
         }
+        chatMetrics.recordFallback(fallbackReason(cause));
+        return Optional.empty();
     }
 
-    private List<Map<String, String>> buildConversation(String userMessage, String userId, String sentiment) {
-        List<Map<String, String>> messages = new ArrayList<>();
+    /**
+     * Streams the completion token by token. Each content delta is handed to {@code onToken}
+     * as soon as it arrives; the full reply is returned once the upstream stream ends.
+     * If the upstream fails before producing anything, the fallback reply is emitted as a
+     * single token so the caller always ends up with a complete answer. If it fails after
+     * some tokens went out, throws {@link IncompleteReplyException} and remembers nothing.
+     */
+    public String streamChatResponse(String userMessage, String userId, String sentiment, String mode,
+                                     Consumer<String> onToken) {
+        List<Object> messages = buildConversation(userMessage, userId, sentiment, mode);
+        StringBuilder reply = new StringBuilder();
 
-        String systemPrompt = buildDynamicSystemPrompt(sentiment, userId);
-        messages.add(Map.of("role", "system", "content", systemPrompt));
+        try {
+            log.info("🚀 Streaming from Groq API...");
 
-        if (userId != null && conversationMemory.containsKey(userId)) {
-            List<Map<String, String>> history = conversationMemory.get(userId);
-            int startIndex = Math.max(0, history.size() - 6);
-            messages.addAll(history.subList(startIndex, history.size()));
+            llmRouter.stream(buildRequestBody(messages, true), line -> {
+                if (!line.startsWith("data:")) {
+                    return;
+                }
+                String data = line.substring(5).trim();
+                if ("[DONE]".equals(data)) {
+                    return;
+                }
+                String token = extractDelta(data);
+                if (token != null && !token.isEmpty()) {
+                    reply.append(token);
+                    onToken.accept(token);
+                }
+            });
+        } catch (Exception e) {
+            log.error("❌ Groq streaming error: {}", e.getMessage());
+            if (!reply.isEmpty()) {
+                throw new IncompleteReplyException(
+                        "Reply broke off after " + reply.length() + " characters", e);
+            }
+            chatMetrics.recordFallback(fallbackReason(e));
+            String fallback = getFallbackResponse(sentiment);
+            onToken.accept(fallback);
+            return fallback;
         }
 
-        messages.add(Map.of("role", "user", "content", userMessage));
-
-        return messages;
-    }
-
-    private String buildDynamicSystemPrompt(String sentiment, String userId) {
-        StringBuilder prompt = new StringBuilder();
-
-        prompt.append("You are Mood AI, a warm and caring mental wellness companion. ");
-        prompt.append("Respond naturally like a supportive friend. Be specific and helpful.\n\n");
-
-        switch (sentiment) {
-            case "POSITIVE":
-                prompt.append("The user is happy! Match their energy. Be enthusiastic. ");
-                prompt.append("If they ask for songs, give 5-7 SPECIFIC song titles with artists. ");
-                prompt.append("Example: '1. Happy by Pharrell Williams, 2. Good Vibrations by The Beach Boys'\n");
-                break;
-
-            case "NEGATIVE":
-                prompt.append("The user is struggling. Be gentle and supportive. ");
-                prompt.append("Offer specific help: breathing exercises, calming activities. ");
-                prompt.append("If they ask for songs, give calming music with specific titles.\n");
-                break;
-
-            default:
-                prompt.append("Be warm and conversational. ");
-                prompt.append("When asked for recommendations, always give specific examples. ");
-                prompt.append("If asked for songs, list actual song titles and artists.\n");
+        if (reply.isEmpty()) {
+            log.warn("⚠️ Empty stream from Groq, using fallback");
+            chatMetrics.recordFallback("empty_reply");
+            String fallback = getFallbackResponse(sentiment);
+            onToken.accept(fallback);
+            return fallback;
         }
 
-        prompt.append("\nIMPORTANT: When the user asks for songs, ALWAYS provide a numbered list ");
-        prompt.append("with specific song titles and artists. Never be vague!\n");
-        prompt.append("Example:\n");
-        prompt.append("1. 'Happy' by Pharrell Williams\n");
-        prompt.append("2. 'Don't Stop Me Now' by Queen\n");
-        prompt.append("3. 'Good Life' by OneRepublic\n\n");
-        prompt.append("Keep responses friendly, specific, and under 200 words. Use 1-2 emojis.");
-
-        return prompt.toString();
+        log.info("🎯 AI Response Streamed: {} characters", reply.length());
+        if (userId != null) {
+            storeConversation(userId, userMessage, reply.toString());
+        }
+        return reply.toString();
     }
 
-    private void storeConversation(String userId, String userMessage, String aiResponse) {
-        conversationMemory.putIfAbsent(userId, new ArrayList<>());
-        List<Map<String, String>> history = conversationMemory.get(userId);
-
-        history.add(Map.of("role", "user", "content", userMessage));
-        history.add(Map.of("role", "assistant", "content", aiResponse));
-
-        if (history.size() > 10) {
-            history.subList(0, history.size() - 10).clear();
+    /** The content delta of one stream chunk; usage, sent with the last chunk, is recorded. */
+    private String extractDelta(String data) {
+        JsonNode chunk;
+        try {
+            chunk = objectMapper.readTree(data);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
-    }
+        // OpenAI puts usage at the top level, Groq under x_groq
+        JsonNode usage = chunk.has("usage") ? chunk.path("usage") : chunk.path("x_groq").path("usage");
+        chatMetrics.recordTokenUsage(chunk.path("model").asText(null), "chat", usage);
 
-    public void clearConversationHistory(String userId) {
-        conversationMemory.remove(userId);
+        JsonNode choices = chunk.path("choices");
+        if (!choices.isArray() || choices.isEmpty()) {
+            return null;
+        }
+        JsonNode content = choices.get(0).path("delta").path("content");
+        return content.isTextual() ? content.asText() : null;
     }
 
-    public String analyzeSentiment(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return "NEUTRAL";
+    private static String fallbackReason(Throwable cause) {
+        if (cause instanceof CircuitOpenException) {
+            return "circuit_open";
         }
-
-        String lowerText = text.toLowerCase();
-
-        String[] positiveWords = {
-                "happy", "joy", "great", "excellent", "wonderful", "amazing", "fantastic",
-                "excited", "grateful", "thankful", "blessed", "proud", "delighted",
-                "cheerful", "love", "better", "good", "awesome"
-        };
-
-        String[] negativeWords = {
-                "sad", "depressed", "angry", "anxious", "worried", "stressed", "upset",
-                "frustrated", "hurt", "pain", "crying", "lonely", "hopeless", "scared",
-                "afraid", "terrible", "horrible", "bad", "worse", "overwhelmed"
-        };
-
-        int positiveCount = 0;
-        int negativeCount = 0;
-
-        for (String word : positiveWords) {
-            if (lowerText.contains(word)) {
-                positiveCount++;
-            }
+        if (cause instanceof UpstreamBusyException) {
+            return "upstream_busy";
         }
-
-        for (String word : negativeWords) {
-            if (lowerText.contains(word)) {
-                negativeCount++;
-            }
+        if (cause instanceof UpstreamHttpException || cause instanceof IOException) {
+            return "upstream_error";
         }
+        return "error";
+    }
 
-        if (positiveCount > negativeCount && positiveCount > 0) {
-            return "POSITIVE";
-        } else if (negativeCount > positiveCount && negativeCount > 0) {
-            return "NEGATIVE";
+    private Map<String, Object> buildRequestBody(List<Object> messages, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("messages", messages);
+        requestBody.put("max_tokens", MAX_TOKENS);
+        requestBody.put("temperature", TEMPERATURE);
+        if (stream) {
+            requestBody.put("stream", true);
         }
+        return requestBody;
+    }
 
-        return "NEUTRAL";
+    /** History is fitted to the token budget; the system message is written as is. */
+    private List<Object> buildConversation(String userMessage, String userId, String sentiment, String mode) {
+        return conversationContextBuilder.build(promptTemplates.get(sentiment, mode), userId, userMessage);
     }
 
-    public Double calculateMoodScore(String sentiment) {
-        Random random = new Random();
-        return switch (sentiment) {
-            case "POSITIVE" -> 0.70 + (random.nextDouble() * 0.30);
-            case "NEGATIVE" -> random.nextDouble() * 0.40;
-            default -> 0.35 + (random.nextDouble() * 0.40);
-        };
+    private void storeConversation(String userId, String userMessage, String aiResponse) {
+        conversationStore.append(userId, userMessage, aiResponse);
+    }
+
+    public void clearConversationHistory(String userId) {
+        conversationStore.clear(userId);
+        conversationSummarizer.clear(userId);
     }
 
-    private String getFallbackResponse(String sentiment) {
+    public String getFallbackResponse(String sentiment) {
         List<String> responses = switch (sentiment) {
             case "POSITIVE" -> List.of(
                     "That's wonderful! 🌟 I'm so happy to hear that! What specifically is making you feel this way?",
@@ -0,0 +1,128 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a small pool sized to the CPU count with a bounded queue. Request threads
+ * only wait for the result, so a burst of logins can use at most {@code threads} cores and
+ * cannot starve chat traffic; once the queue is full further calls fail at once with
+ * {@link TooManyRequestsException} instead of piling up.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHasher {
+
+    @Value("${auth.hash.threads:0}")
+    private int threads;
+
+    @Value("${auth.hash.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${auth.hash.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private final BCryptPasswordEncoder passwordEncoder;
+
+    private ThreadPoolExecutor executor;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T run(Supplier<T> hash) {
+        long submitted = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                totalWaitNanos.addAndGet(start - submitted);
+                try {
+                    return hash.get();
+                } finally {
+                    long took = System.nanoTime() - start;
+                    totalHashNanos.addAndGet(took);
+                    maxHashNanos.accumulateAndGet(took, Math::max);
+                    completed.incrementAndGet();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new TooManyRequestsException("Too many sign-in attempts right now, please retry shortly", 1);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new TooManyRequestsException("Too many sign-in attempts right now, please retry shortly", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while checking password");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long done = completed.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", executor.getPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("completed", done);
+        stats.put("rejected", rejected.get());
+        stats.put("averageHashMs", done > 0 ? totalHashNanos.get() / done / 1_000_000.0 : 0.0);
+        stats.put("maxHashMs", maxHashNanos.get() / 1_000_000.0);
+        stats.put("averageQueueWaitMs", done > 0 ? totalWaitNanos.get() / done / 1_000_000.0 : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * System prompts, assembled once per (sentiment, mode) from the sections in
+ * {@code prompt-templates.txt} rather than on every request. Each prompt also carries its
+ * system message already serialized to JSON, which Jackson writes into the request body
+ * verbatim.
+ *
+ * <p>If the templates come from a file on disk, it is checked every
+ * {@code prompts.reload-interval-ms} and reloaded when it changes; a file that fails to
+ * parse is logged and the previous templates stay in use. Every load gets a new version,
+ * which is part of {@link PromptTemplate#key()} so replies cached under an old prompt are
+ * not reused.
+ */
+@Component
+@Slf4j
+public class PromptTemplates {
+
+    static final List<String> SENTIMENTS = List.of("POSITIVE", "NEGATIVE", "NEUTRAL");
+    private static final String DEFAULT_SENTIMENT = "NEUTRAL";
+    private static final String NO_MODE = "";
+
+    private final Resource source;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+    private long sourceLastModified;
+
+    public PromptTemplates(@Value("${prompts.templates:classpath:prompt-templates.txt}") Resource source,
+                           ObjectMapper objectMapper) {
+        this.source = source;
+        this.objectMapper = objectMapper;
+        this.sourceLastModified = lastModified();
+        this.snapshot = compile(1);
+    }
+
+    /**
+     * The prompt for {@code sentiment} in {@code mode}. Unknown sentiments are treated as
+     * neutral, and a missing or unknown mode gets the plain prompt for the sentiment.
+     */
+    public PromptTemplate get(String sentiment, String mode) {
+        Snapshot current = snapshot;
+        String s = sentiment != null && SENTIMENTS.contains(sentiment) ? sentiment : DEFAULT_SENTIMENT;
+        String m = mode != null ? mode.trim().toLowerCase(Locale.ROOT) : NO_MODE;
+        PromptTemplate template = current.templates.get(s + "/" + m);
+        return template != null ? template : current.templates.get(s + "/" + NO_MODE);
+    }
+
+    public List<String> modes() {
+        return snapshot.modes;
+    }
+
+    /** Re-reads the templates now. Throws if they do not parse, keeping the current ones. */
+    public synchronized Map<String, Object> reload() {
+        sourceLastModified = lastModified();
+        snapshot = compile(snapshot.version + 1);
+        log.info("Reloaded prompt templates, version {}", snapshot.version);
+        return stats();
+    }
+
+    @Scheduled(fixedDelayString = "${prompts.reload-interval-ms:30000}")
+    public synchronized void reloadIfChanged() {
+        long modified = lastModified();
+        if (modified <= 0 || modified == sourceLastModified) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Do not retry the same broken file on every tick
+            sourceLastModified = modified;
+            log.error("Prompt templates in {} are invalid, keeping version {}: {}",
+                    source, snapshot.version, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", source.getDescription());
+        stats.put("version", current.version);
+        stats.put("modes", current.modes);
+        stats.put("templates", current.templates.size());
+        return stats;
+    }
+
+    private Snapshot compile(int version) {
+        Map<String, String> sections = parse();
+        String base = require(sections, "base");
+        String footer = require(sections, "footer");
+
+        List<String> modes = new ArrayList<>();
+        for (String name : sections.keySet()) {
+            if (name.startsWith("mode ") && !sections.get(name).isEmpty()) {
+                modes.add(name.substring(5));
+            }
+        }
+
+        Map<String, PromptTemplate> templates = new HashMap<>();
+        for (String sentiment : SENTIMENTS) {
+            String sentimentText = require(sections, "sentiment " + sentiment);
+            templates.put(sentiment + "/" + NO_MODE,
+                    template(version, sentiment, NO_MODE, String.join("\n\n", base, sentimentText, footer)));
+            for (String mode : modes) {
+                String text = String.join("\n\n", base, sentimentText, sections.get("mode " + mode), footer);
+                templates.put(sentiment + "/" + mode, template(version, sentiment, mode, text));
+            }
+        }
+        return new Snapshot(version, Map.copyOf(templates), List.copyOf(modes));
+    }
+
+    private PromptTemplate template(int version, String sentiment, String mode, String text) {
+        try {
+            String json = objectMapper.writeValueAsString(Map.of("role", "system", "content", text));
+            String key = "v" + version + "/" + sentiment + "/" + (mode.isEmpty() ? "default" : mode);
+            return new PromptTemplate(key, text, new RawValue(json));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Section name to its text; lines inside a section are kept, blank edges trimmed. */
+    private Map<String, String> parse() {
+        Map<String, List<String>> sections = new LinkedHashMap<>();
+        List<String> current = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                String trimmed = line.trim();
+                if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                    String name = normalizeSection(trimmed.substring(1, trimmed.length() - 1));
+                    current = new ArrayList<>();
+                    if (sections.put(name, current) != null) {
+                        throw new IllegalArgumentException("Duplicate prompt section [" + name + "]");
+                    }
+                } else if (current != null) {
+                    current.add(line.stripTrailing());
+                } else if (!trimmed.isEmpty()) {
+                    throw new IllegalArgumentException("Prompt text outside a section: " + line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read prompt templates " + source, e);
+        }
+
+        Map<String, String> texts = new LinkedHashMap<>();
+        sections.forEach((name, lines) -> texts.put(name, String.join("\n", lines).strip()));
+        return texts;
+    }
+
+    private static String normalizeSection(String name) {
+        String[] parts = name.trim().split("\\s+", 2);
+        String kind = parts[0].toLowerCase(Locale.ROOT);
+        if (parts.length == 1) {
+            return kind;
+        }
+        String value = kind.equals("sentiment") ? parts[1].toUpperCase(Locale.ROOT) : parts[1].toLowerCase(Locale.ROOT);
+        return kind + " " + value;
+    }
+
+    private static String require(Map<String, String> sections, String name) {
+        String text = sections.get(name);
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Missing prompt section [" + name + "]");
+        }
+        return text;
+    }
+
+    private long lastModified() {
+        try {
+            return source.isFile() ? source.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A ready-to-send system prompt. {@code key} identifies the exact text, including the
+     * template version; {@code message} is the serialized system message.
+     */
+    public record PromptTemplate(String key, String text, RawValue message) {
+    }
+
+    private record Snapshot(int version, Map<String, PromptTemplate> templates, List<String> modes) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lexicon-based sentiment detection. The lexicon is read and compiled into a
+ * {@link KeywordMatcher} once at startup, so analysing a message is a single pass over
+ * its characters. Negators ("not", "never", ...) flip the sign of a sentiment term that starts
+ * within the next {@value #NEGATION_WINDOW_WORDS} words of the same clause (so at most two
+ * words in between), and intensifiers ("very", "extremely", ...) scale the next term by
+ * their factor.
+ *
+ * <p>The mood score is derived from the same pass: {@code 0.5 + 0.5 * tanh(polarity / k)},
+ * so it is continuous, saturates smoothly for very emotional messages and is always the
+ * same for the same text.
+ */
+@Component
+@Slf4j
+public class SentimentAnalyzer {
+
+    static final String NEGATE = "NEGATE";
+    static final char INTENSIFY = '*';
+    private static final int NEGATION_WINDOW_WORDS = 3;
+    private static final double MOOD_SCALE = 2.0;
+
+    private final KeywordMatcher matcher;
+    private final double[] weights;
+    private final boolean[] negators;
+    private final double[] intensifiers;
+
+    public SentimentAnalyzer(@Value("${sentiment.lexicon:classpath:sentiment-lexicon.txt}") Resource lexicon) {
+        List<String> terms = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(lexicon.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int split = line.lastIndexOf(' ');
+                if (split <= 0) {
+                    throw new IllegalArgumentException("Malformed lexicon line: " + line);
+                }
+                terms.add(line.substring(0, split).trim().toLowerCase(Locale.ROOT));
+                values.add(line.substring(split + 1));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sentiment lexicon " + lexicon, e);
+        }
+
+        weights = new double[terms.size()];
+        negators = new boolean[terms.size()];
+        intensifiers = new double[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            if (NEGATE.equals(values.get(i))) {
+                negators[i] = true;
+            } else if (values.get(i).charAt(0) == INTENSIFY) {
+                intensifiers[i] = Double.parseDouble(values.get(i).substring(1));
+            } else {
+                weights[i] = Double.parseDouble(values.get(i));
+            }
+        }
+        matcher = KeywordMatcher.compile(terms);
+        log.info("Loaded sentiment lexicon with {} terms", terms.size());
+    }
+
+    public SentimentResult analyze(String text) {
+        if (text == null || text.isBlank()) {
+            return SentimentResult.NEUTRAL;
+        }
+
+        Accumulator acc = new Accumulator(text);
+        matcher.match(text, acc);
+
+        String sentiment = acc.polarity > 0 ? "POSITIVE" : acc.polarity < 0 ? "NEGATIVE" : "NEUTRAL";
+        return new SentimentResult(sentiment, acc.polarity, moodScore(acc.polarity),
+                acc.positiveHits, acc.negativeHits);
+    }
+
+    static double moodScore(double polarity) {
+        double score = 0.5 + 0.5 * Math.tanh(polarity / MOOD_SCALE);
+        // Stored as a plain double; keep it readable and stable across platforms
+        return Math.round(score * 1000.0) / 1000.0;
+    }
+
+    private final class Accumulator implements KeywordMatcher.MatchHandler {
+        private final String text;
+        private int negationEnd = -1;
+        private int intensifierEnd = -1;
+        private double intensity = 1.0;
+        private double polarity;
+        private int positiveHits;
+        private int negativeHits;
+
+        private Accumulator(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void onMatch(int termId, int start, int end) {
+            if (negators[termId]) {
+                negationEnd = end;
+                return;
+            }
+            if (intensifiers[termId] > 0) {
+                intensifierEnd = end;
+                intensity = intensifiers[termId];
+                return;
+            }
+            double weight = weights[termId];
+            if (intensifierEnd >= 0 && withinScope(intensifierEnd, start, 2)) {
+                weight *= intensity;
+            }
+            intensifierEnd = -1;
+            if (negationEnd >= 0 && withinScope(negationEnd, start, NEGATION_WINDOW_WORDS)) {
+                weight = -weight;
+            }
+            if (weight > 0) {
+                positiveHits++;
+            } else if (weight < 0) {
+                negativeHits++;
+            }
+            polarity += weight;
+        }
+
+        private boolean withinScope(int from, int start, int windowWords) {
+            int words = 0;
+            boolean inWord = false;
+            for (int i = from; i < start; i++) {
+                char c = text.charAt(i);
+                if (c == '.' || c == ',' || c == '!' || c == '?' || c == ';') {
+                    return false;
+                }
+                boolean wordChar = Character.isLetterOrDigit(c);
+                if (wordChar && !inWord && ++words >= windowWords) {
+                    return false;
+                }
+                inWord = wordChar;
+            }
+            return true;
+        }
+    }
+}
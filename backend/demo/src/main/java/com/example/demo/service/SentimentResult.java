@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Outcome of analysing one message. {@code polarity} is the signed sum of matched lexicon
+ * weights after negation and intensifiers; {@code sentiment} is its label and
+ * {@code moodScore} maps it onto 0..1, with 0.5 meaning no sentiment terms at all.
+ */
+public record SentimentResult(String sentiment, double polarity, double moodScore,
+                              int positiveHits, int negativeHits) {
+
+    public static final SentimentResult NEUTRAL = new SentimentResult("NEUTRAL", 0.0, 0.5, 0, 0);
+}
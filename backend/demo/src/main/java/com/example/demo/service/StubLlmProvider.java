@@ -0,0 +1,104 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Local provider that answers without any network call ({@code llm.provider.<name>.type=stub}),
+ * for tests and for running the app without an API key. The reply echoes the last user
+ * message after {@code latency-ms}; setting {@code fail=true} makes every call fail with a
+ * 503 so failover can be exercised.
+ */
+public class StubLlmProvider implements LlmProvider {
+
+    private final String name;
+    private final long latencyMs;
+    private final boolean fail;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    public StubLlmProvider(String name, long latencyMs, boolean fail, ObjectMapper objectMapper) {
+        this.name = name;
+        this.latencyMs = latencyMs;
+        this.fail = fail;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String model() {
+        return "stub";
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> complete(Map<String, Object> requestBody) {
+        calls.incrementAndGet();
+        Executor delayed = CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> {
+            failIfConfigured();
+            ObjectNode response = objectMapper.createObjectNode();
+            response.putArray("choices").addObject().putObject("message")
+                    .put("role", "assistant")
+                    .put("content", reply(requestBody));
+            return response;
+        }, delayed);
+    }
+
+    @Override
+    public void stream(Map<String, Object> requestBody, Consumer<String> onLine) throws InterruptedException {
+        calls.incrementAndGet();
+        Thread.sleep(latencyMs);
+        failIfConfigured();
+        for (String word : reply(requestBody).split("(?<= )")) {
+            ObjectNode chunk = objectMapper.createObjectNode();
+            chunk.putArray("choices").addObject().putObject("delta").put("content", word);
+            onLine.accept("data: " + chunk);
+        }
+        onLine.accept("data: [DONE]");
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("calls", calls.get());
+        return stats;
+    }
+
+    private void failIfConfigured() {
+        if (fail) {
+            throw new UpstreamHttpException(503, "Stub provider " + name + " is configured to fail");
+        }
+    }
+
+    private static String reply(Map<String, Object> requestBody) {
+        String last = "";
+        if (requestBody.get("messages") instanceof List<?> messages) {
+            for (Object message : messages) {
+                if (message instanceof Map<?, ?> map && "user".equals(map.get("role"))) {
+                    last = String.valueOf(map.get("content"));
+                }
+            }
+        }
+        return "Stub reply to: " + last;
+    }
+}
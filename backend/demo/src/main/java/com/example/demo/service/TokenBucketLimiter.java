@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keyed token buckets: each key may spend up to {@code capacity} permits in a burst, and
+ * regains {@code capacity} permits per {@code refillPeriod}. Keys are spread over a fixed
+ * number of stripes, each an LRU map under its own lock, so unrelated keys rarely contend
+ * and the number of tracked keys stays bounded by {@code maxKeys}. An evicted key simply
+ * starts again with a full bucket.
+ */
+public class TokenBucketLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final long capacity;
+    private final double permitsPerNano;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public TokenBucketLimiter(long capacity, Duration refillPeriod, int maxKeys) {
+        this.capacity = capacity;
+        this.permitsPerNano = (double) capacity / refillPeriod.toNanos();
+        int keysPerStripe = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(keysPerStripe);
+        }
+    }
+
+    /**
+     * Takes {@code permits} from the key's bucket. Returns 0 when they were granted, otherwise
+     * the nanoseconds until enough permits will be available; nothing is taken in that case.
+     */
+    public long tryAcquire(String key, long permits) {
+        if (permits > capacity) {
+            return Long.MAX_VALUE;
+        }
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        long now = System.nanoTime();
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+            bucket.refill(now, capacity, permitsPerNano);
+            if (bucket.tokens >= permits) {
+                bucket.tokens -= permits;
+                return 0;
+            }
+            return (long) Math.ceil((permits - bucket.tokens) / permitsPerNano);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public long tryAcquire(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * Gives back permits taken by {@link #tryAcquire}, e.g. when the work was not done after all.
+     */
+    public void release(String key, long permits) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket != null) {
+                bucket.tokens = Math.min(capacity, bucket.tokens + permits);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public int trackedKeys() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.buckets.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, Bucket> buckets;
+
+        Stripe(int maxKeys) {
+            buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long lastRefill;
+
+        Bucket(long capacity, long now) {
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        void refill(long now, long capacity, double permitsPerNano) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a caller is over its rate limit or the work it needs cannot be admitted.
+ * Controllers answer it with 429 and a {@code Retry-After} of {@link #getRetryAfterSeconds()}.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket width of a mood trend. Weeks start on Monday.
+ */
+public enum TrendGranularity {
+    HOUR(ChronoUnit.HOURS, 48),
+    DAY(ChronoUnit.DAYS, 30),
+    WEEK(ChronoUnit.WEEKS, 12);
+
+    private final ChronoUnit unit;
+    private final int defaultBuckets;
+
+    TrendGranularity(ChronoUnit unit, int defaultBuckets) {
+        this.unit = unit;
+        this.defaultBuckets = defaultBuckets;
+    }
+
+    public static TrendGranularity parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown granularity: " + value + " (use hour, day or week)");
+        }
+    }
+
+    int defaultBuckets() {
+        return defaultBuckets;
+    }
+
+    /**
+     * Start of the bucket containing {@code time}.
+     */
+    LocalDateTime floor(LocalDateTime time) {
+        return switch (this) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+        };
+    }
+
+    /**
+     * Smallest bucket start that is not before {@code time}.
+     */
+    LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : next(floor);
+    }
+
+    LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+
+    LocalDateTime minus(LocalDateTime bucketStart, long buckets) {
+        return bucketStart.minus(buckets, unit);
+    }
+
+    long bucketsBetween(LocalDateTime from, LocalDateTime to) {
+        return unit.between(from, to);
+    }
+
+    /**
+     * Bucket of a database row; {@code hour} is null for rows that are already per day.
+     */
+    LocalDateTime bucketOf(LocalDate date, Integer hour) {
+        return floor(hour != null ? date.atTime(hour, 0) : date.atStartOfDay());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when an upstream LLM call cannot be admitted because the in-flight limit and
+ * the wait queue are both full, or the caller waited in the queue for too long.
+ */
+public class UpstreamBusyException extends RuntimeException {
+    public UpstreamBusyException(String message) {
+        super(message);
+    }
+}
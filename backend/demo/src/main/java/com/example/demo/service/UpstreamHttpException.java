@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+/**
+ * Non-2xx answer from the LLM endpoint. Keeps the status so callers can tell
+ * throttling (429) and server errors (5xx) apart from bad requests.
+ */
+public class UpstreamHttpException extends RuntimeException {
+    private final int statusCode;
+    private final long retryAfterSeconds;
+
+    public UpstreamHttpException(int statusCode, String message) {
+        this(statusCode, message, -1);
+    }
+
+    public UpstreamHttpException(int statusCode, String message, long retryAfterSeconds) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** The upstream's Retry-After hint in seconds, or -1 if it sent none. */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking admission control for upstream calls: at most {@code maxInFlight} calls run
+ * at once, up to {@code maxQueued} callers wait for a slot in FIFO order, and everything
+ * beyond that is rejected immediately. Waiting is expressed as a future, so no thread is
+ * parked while a caller sits in the queue.
+ */
+public class UpstreamLimiter {
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+
+    // Guarded by this
+    private int inFlight;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong queuedTotal = new AtomicLong();
+    private final AtomicLong grantedFromQueue = new AtomicLong();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public UpstreamLimiter(int maxInFlight, int maxQueued, long queueTimeoutMs) {
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    /**
+     * Completes once a slot is held. Every successful acquire must be paired with
+     * exactly one {@link #release()}.
+     */
+    public CompletableFuture<Void> acquire() {
+        Waiter waiter;
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                acquired.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waiters.size() >= maxQueued) {
+                rejected.incrementAndGet();
+                return CompletableFuture.failedFuture(
+                        new UpstreamBusyException("Upstream queue full (" + maxQueued + " waiting)"));
+            }
+            waiter = new Waiter();
+            waiters.add(waiter);
+            queuedTotal.incrementAndGet();
+        }
+
+        CompletableFuture<Void> timeout = new CompletableFuture<Void>()
+                .completeOnTimeout(null, queueTimeoutMs, TimeUnit.MILLISECONDS);
+        timeout.thenRun(() -> {
+            boolean removed;
+            synchronized (this) {
+                removed = waiters.remove(waiter);
+            }
+            // Out of the queue, so nothing else will grant it; count before the caller can see it
+            if (removed) {
+                timedOut.incrementAndGet();
+                waiter.future.completeExceptionally(
+                        new UpstreamBusyException("Timed out after " + queueTimeoutMs + " ms waiting for upstream slot"));
+            }
+        });
+        waiter.future.whenComplete((v, ex) -> timeout.cancel(false));
+        return waiter.future;
+    }
+
+    public void release() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            // The slot passes straight to the next waiter; inFlight stays the same
+            if (next.future.complete(null)) {
+                long waited = System.nanoTime() - next.enqueuedAt;
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+                grantedFromQueue.incrementAndGet();
+                acquired.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueDepth() {
+        return waiters.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long granted = grantedFromQueue.get();
+        synchronized (this) {
+            stats.put("inFlight", inFlight);
+            stats.put("queueDepth", waiters.size());
+        }
+        stats.put("maxInFlight", maxInFlight);
+        stats.put("maxQueued", maxQueued);
+        stats.put("acquired", acquired.get());
+        stats.put("rejected", rejected.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("queuedTotal", queuedTotal.get());
+        stats.put("averageWaitMs", granted == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / granted);
+        stats.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private static class Waiter {
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global budget of upstream LLM tokens per period, shared by every caller. Implemented as
+ * a generic cell rate algorithm over one {@link AtomicLong} (the theoretical arrival time),
+ * so admission is a single compare-and-set with no lock to contend on. Bursts of up to the
+ * full budget are allowed; after that spending is paced at the refill rate.
+ */
+public class UpstreamTokenBudget {
+
+    private final long capacity;
+    private final double nanosPerToken;
+    private final long burstNanos;
+    // Time at which everything spent so far is paid back; at most now, plus the burst allowance
+    private final AtomicLong theoreticalArrival;
+
+    public UpstreamTokenBudget(long tokensPerPeriod, Duration period) {
+        this.capacity = tokensPerPeriod;
+        this.nanosPerToken = (double) period.toNanos() / tokensPerPeriod;
+        this.burstNanos = period.toNanos();
+        // Start with the full budget available
+        this.theoreticalArrival = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Spends {@code tokens} from the budget. Returns 0 when admitted, otherwise the
+     * nanoseconds until that many tokens will be available; nothing is spent in that case.
+     */
+    public long tryAcquire(long tokens) {
+        if (tokens > capacity) {
+            tokens = capacity;
+        }
+        long cost = (long) Math.ceil(tokens * nanosPerToken);
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long newTat = Math.max(tat, now - burstNanos) + cost;
+            long overdraw = newTat - now;
+            if (overdraw > 0) {
+                return overdraw;
+            }
+            if (theoreticalArrival.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Tokens that could be spent right now.
+     */
+    public long available() {
+        long spent = theoreticalArrival.get() - (System.nanoTime() - burstNanos);
+        return Math.max(0, capacity - (long) Math.ceil(Math.max(0, spent) / nanosPerToken));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.config;
+
+import com.example.demo.service.ChatMetrics;
+import com.example.demo.service.JwtService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.prometheus.scrape-token=scrape-secret")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsEndpointSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusNeedsTheScrapeToken() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer wrong"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer scrape-secret"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("jvm_memory_used_bytes")));
+    }
+
+    @Test
+    void adminTokenCanScrapeToo() throws Exception {
+        String admin = jwtService.generateToken(1L, "admin@example.com", "ADMIN");
+        String user = jwtService.generateToken(2L, "user@example.com", "USER");
+
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + admin))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + user))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void scrapeIncludesStageHistogramsAndTokenCounters() throws Exception {
+        // Both only appear once something was recorded
+        chatMetrics.time("sentiment", false, () -> "NEUTRAL");
+        chatMetrics.recordTokenUsage("test-model", "chat",
+                new ObjectMapper().readTree("{\"prompt_tokens\": 12, \"completion_tokens\": 3}"));
+
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer scrape-secret"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("chat_stage_seconds_bucket")))
+                .andExpect(content().string(containsString("llm_tokens_total")));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.JwtService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /send and /anonymous answer asynchronously; these go through a real server so the async
+ * dispatch passes the security filter chain as it would in production. The upstream is
+ * unreachable in tests, so replies are the canned fallback.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:chatcontroller;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "groq.retry.max-attempts=1",
+        "chat.rate-limit.anonymous.capacity=1"
+})
+class ChatControllerTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void sendAnswersAfterTheReplyIsSaved() {
+        User user = new User();
+        user.setEmail("async@example.com");
+        user.setPassword("x");
+        user.setFullName("Async");
+        user = userRepository.save(user);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(jwtService.generateToken(user.getId(), user.getEmail(), "USER"));
+
+        ResponseEntity<JsonNode> response = rest.postForEntity("/api/chat/send",
+                new HttpEntity<>(Map.of("message", "I feel great"), headers), JsonNode.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JsonNode chat = response.getBody().path("data");
+        assertThat(chat.path("sentiment").asText()).isEqualTo("POSITIVE");
+        assertThat(chat.path("response").asText()).isNotBlank();
+        assertThat(chatRepository.findById(chat.path("id").asLong())).isPresent();
+    }
+
+    @Test
+    void anonymousAnswersAndThenRateLimits() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<JsonNode> first = rest.postForEntity("/api/chat/anonymous",
+                new HttpEntity<>(Map.of("message", "hello there"), headers), JsonNode.class);
+        ResponseEntity<JsonNode> second = rest.postForEntity("/api/chat/anonymous",
+                new HttpEntity<>(Map.of("message", "something else"), headers), JsonNode.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody().path("data").path("response").asText()).isNotBlank();
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(second.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+    }
+
+    @Test
+    void clientsBehindTheLocalProxyAreLimitedSeparately() {
+        HttpHeaders alice = new HttpHeaders();
+        alice.setContentType(MediaType.APPLICATION_JSON);
+        alice.set("X-Forwarded-For", "203.0.113.7");
+        HttpHeaders bob = new HttpHeaders();
+        bob.setContentType(MediaType.APPLICATION_JSON);
+        bob.set("X-Forwarded-For", "198.51.100.9");
+
+        assertThat(rest.postForEntity("/api/chat/anonymous",
+                new HttpEntity<>(Map.of("message", "first from alice"), alice), JsonNode.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(rest.postForEntity("/api/chat/anonymous",
+                new HttpEntity<>(Map.of("message", "first from bob"), bob), JsonNode.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(rest.postForEntity("/api/chat/anonymous",
+                new HttpEntity<>(Map.of("message", "second from alice"), alice), JsonNode.class).getStatusCode())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.demo.perf;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.JwtService;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Load harness, not a test: sends {@value #SESSIONS} concurrent chats through the real stack
+ * (Tomcat, security, {@code ChatService}, {@code OpenAIService}, the LLM router and
+ * {@code GroqClient}) to a local stub upstream with fixed latency, and logs throughput, p99
+ * latency and what came back. Nothing is asserted; timings on a shared machine mean little
+ * on their own.
+ *
+ * <p>Run once per thread mode and compare:
+ * <pre>
+ * mvn test -Pperf -Dtest=ChatLoadHarness
+ * mvn test -Pperf -Dtest=ChatLoadHarness -Dspring.threads.virtual.enabled=true
+ * </pre>
+ *
+ * <p>The client's limiter and the rate limits are raised past {@value #SESSIONS} so they
+ * never decide the outcome. The anonymous endpoint is async and holds no thread while it
+ * waits, so both modes should look alike there. The stream endpoint blocks one stream
+ * executor thread per reply: {@code chat.stream.pool-size} (32) platform threads, or a
+ * virtual thread each, which is where the thread mode shows.
+ */
+@Tag("perf")
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:chatload;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "chat.rate-limit.anonymous.capacity=1000000",
+        "chat.rate-limit.user.capacity=1000000",
+        "groq.budget.tokens-per-minute=1000000000",
+        "chat.anonymous-cache.enabled=false",
+        "conversation.summary.enabled=false",
+        "groq.retry.max-attempts=1",
+        "groq.http.max-in-flight=" + ChatLoadHarness.SESSIONS,
+        "groq.http.max-queued=" + ChatLoadHarness.SESSIONS,
+        "groq.http.queue-timeout-ms=60000",
+        "chat.stream.queue-capacity=" + ChatLoadHarness.SESSIONS,
+        "server.tomcat.accept-count=2000"
+})
+class ChatLoadHarness {
+
+    static final int SESSIONS = 1000;
+    private static final long UPSTREAM_LATENCY_MS = 300;
+    private static final String REPLY = "{\"choices\":[{\"message\":{\"content\":\"stub reply\"}}]}";
+    private static final String STREAM = """
+            data: {"choices":[{"delta":{"content":"stub"}}]}
+
+            data: {"choices":[{"delta":{"content":" reply"}}]}
+
+            data: [DONE]
+
+            """;
+
+    private static final AtomicInteger concurrent = new AtomicInteger();
+    private static final AtomicInteger peak = new AtomicInteger();
+    private static final AtomicInteger upstreamCalls = new AtomicInteger();
+    private static HttpServer upstream;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @DynamicPropertySource
+    static void stubUpstream(DynamicPropertyRegistry registry) throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), SESSIONS);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/chat", exchange -> {
+            boolean streamed = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)
+                    .contains("\"stream\":true");
+            upstreamCalls.incrementAndGet();
+            peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(UPSTREAM_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            byte[] body = (streamed ? STREAM : REPLY).getBytes(StandardCharsets.UTF_8);
+            if (streamed) {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+        registry.add("groq.api.url", () -> "http://127.0.0.1:" + upstream.getAddress().getPort() + "/chat");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @BeforeEach
+    void resetUpstream() {
+        peak.set(0);
+        upstreamCalls.set(0);
+    }
+
+    @Test
+    void anonymousChatsUnderLoad() throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + port + "/api/chat/anonymous");
+        // Distinct prompts, so nothing is coalesced
+        run("anonymous", i -> HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"load test message " + i + "\"}"))
+                        .build(),
+                body -> body.contains("stub reply") ? "model reply" : "fallback reply");
+    }
+
+    @Test
+    void streamedChatsUnderLoad() throws Exception {
+        User user = new User();
+        user.setEmail("load-" + System.nanoTime() + "@example.com");
+        user.setPassword("x");
+        user = userRepository.save(user);
+        String token = jwtService.generateToken(user.getId(), user.getEmail(), "USER");
+
+        URI uri = URI.create("http://127.0.0.1:" + port + "/api/chat/stream");
+        run("stream", i -> HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .header("Authorization", "Bearer " + token)
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"load test message " + i + "\"}"))
+                        .build(),
+                body -> body.contains("event:done") ? "done"
+                        : body.contains("event:error") ? "error" : "incomplete");
+    }
+
+    private void run(String endpoint, IntFunction<HttpRequest> requests, Function<String, String> outcomeOf)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        Map<String, Integer> outcomes = new TreeMap<>();
+        long[] latenciesNanos = new long[SESSIONS];
+
+        long start = System.nanoTime();
+        try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i++) {
+                HttpRequest request = requests.apply(i);
+                int session = i;
+                responses.add(sessions.submit(() -> {
+                    long sent = System.nanoTime();
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    latenciesNanos[session] = System.nanoTime() - sent;
+                    return response;
+                }));
+            }
+            for (Future<HttpResponse<String>> response : responses) {
+                HttpResponse<String> r = response.get();
+                String outcome = r.statusCode() != 200 ? "HTTP " + r.statusCode() : outcomeOf.apply(r.body());
+                outcomes.merge(outcome, 1, Integer::sum);
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        Arrays.sort(latenciesNanos);
+        long p99Ms = latenciesNanos[(int) Math.ceil(SESSIONS * 0.99) - 1] / 1_000_000;
+        double throughput = SESSIONS * 1e9 / elapsedNanos;
+        log.info("{}: {} sessions, virtual threads {}: {} ms, {} req/s, p99 {} ms, {} upstream calls, "
+                        + "peak {} concurrent upstream calls, {}",
+                endpoint, SESSIONS, environment.getProperty("spring.threads.virtual.enabled", "false"),
+                elapsedNanos / 1_000_000, String.format("%.1f", throughput), p99Ms,
+                upstreamCalls.get(), peak.get(), outcomes);
+    }
+}
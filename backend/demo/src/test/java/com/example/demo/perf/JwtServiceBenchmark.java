@@ -0,0 +1,68 @@
+package com.example.demo.perf;
+
+import com.example.demo.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Rough comparison of per-request token verification: the old three parses with a fresh key
+ * each, one parse with the shared parser, and a claims-cache hit. Excluded from the normal
+ * test run; run with {@code mvn test -Pperf -Dtest=JwtServiceBenchmark}. Results are logged,
+ * not asserted.
+ */
+@Tag("perf")
+@Slf4j
+class JwtServiceBenchmark {
+
+    private static final String SECRET = "test-secret-key-that-is-at-least-256-bits-long-for-hs256";
+
+    private final JwtService cached = new JwtService(SECRET, 86_400_000L, 100, Duration.ofMinutes(1));
+    private final JwtService uncached = new JwtService(SECRET, 86_400_000L, 0, Duration.ZERO);
+
+    @Test
+    void verifyPath() {
+        String token = cached.generateToken(3L, "user@example.com", "USER");
+
+        long legacy = time(() -> legacyAuthenticate(token));
+        long singleParse = time(() -> uncached.verify(token).orElseThrow().email());
+        long cacheHit = time(() -> cached.verify(token).orElseThrow().email());
+
+        log.info("jwt auth per request: 3 parses {} ns/op, single parse {} ns/op, cached {} ns/op",
+                legacy, singleParse, cacheHit);
+    }
+
+    private static long time(Supplier<String> op) {
+        for (int i = 0; i < 5_000; i++) {
+            op.get();
+        }
+        int iterations = 2_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.get();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    /** What the filter used to do: validate, then extract email and role, each with a fresh key and parser. */
+    private static String legacyAuthenticate(String token) {
+        legacyClaims(token);
+        String email = legacyClaims(token).getSubject();
+        legacyClaims(token).get("role", String.class);
+        return email;
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.perf;
+
+import com.example.demo.service.SentimentAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.function.Supplier;
+
+/**
+ * Rough comparison of the compiled lexicon matcher with the per-word {@code contains} scan it
+ * replaced. Excluded from the normal test run; run with
+ * {@code mvn test -Pperf -Dtest=SentimentAnalyzerBenchmark}. Results are logged, not asserted.
+ */
+@Tag("perf")
+@Slf4j
+class SentimentAnalyzerBenchmark {
+
+    private final SentimentAnalyzer analyzer = new SentimentAnalyzer(new ClassPathResource("sentiment-lexicon.txt"));
+
+    @Test
+    void againstContainsScan() {
+        String paragraph = "Today started badly, I was stressed and worried about work, but after a long walk "
+                + "I feel a bit better and honestly grateful for my friends who listened. ";
+        String message = paragraph.repeat(100);
+
+        long legacy = time(() -> legacyAnalyze(message));
+        long compiled = time(() -> analyzer.analyze(message).sentiment());
+
+        log.info("sentiment on {} chars: contains-scan {} us/op, automaton {} us/op",
+                message.length(), legacy / 1000, compiled / 1000);
+    }
+
+    private static long time(Supplier<String> op) {
+        for (int i = 0; i < 2_000; i++) {
+            op.get();
+        }
+        int iterations = 1_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.get();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    /** The previous per-word {@code contains} implementation, kept here for comparison. */
+    private static String legacyAnalyze(String text) {
+        String lowerText = text.toLowerCase();
+        String[] positiveWords = {
+                "happy", "joy", "great", "excellent", "wonderful", "amazing", "fantastic",
+                "excited", "grateful", "thankful", "blessed", "proud", "delighted",
+                "cheerful", "love", "better", "good", "awesome"
+        };
+        String[] negativeWords = {
+                "sad", "depressed", "angry", "anxious", "worried", "stressed", "upset",
+                "frustrated", "hurt", "pain", "crying", "lonely", "hopeless", "scared",
+                "afraid", "terrible", "horrible", "bad", "worse", "overwhelmed"
+        };
+        int positiveCount = 0;
+        int negativeCount = 0;
+        for (String word : positiveWords) {
+            if (lowerText.contains(word)) {
+                positiveCount++;
+            }
+        }
+        for (String word : negativeWords) {
+            if (lowerText.contains(word)) {
+                negativeCount++;
+            }
+        }
+        if (positiveCount > negativeCount && positiveCount > 0) {
+            return "POSITIVE";
+        } else if (negativeCount > positiveCount && negativeCount > 0) {
+            return "NEGATIVE";
+        }
+        return "NEUTRAL";
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.AdminChatRow;
+import com.example.demo.dto.ChatResponse;
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ChatRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("pager@example.com");
+        user.setPassword("x");
+        entityManager.persist(user);
+        for (int i = 1; i <= 5; i++) {
+            Chat chat = new Chat();
+            chat.setUser(user);
+            chat.setMessage("m" + i);
+            chat.setResponse("r" + i);
+            chat.setSentiment("NEUTRAL");
+            chat.setMoodScore(0.5);
+            entityManager.persist(chat);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void keysetPagesCoverHistoryOnceNewestFirst() {
+        List<ChatResponse> seen = new ArrayList<>();
+        List<ChatResponse> page = chatRepository.findHistoryPage(user.getId(), PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            ChatResponse last = page.get(page.size() - 1);
+            page = chatRepository.findHistoryPageBefore(
+                    user.getId(), last.getCreatedAt(), last.getId(), PageRequest.of(0, 2));
+        }
+
+        assertThat(seen).extracting(ChatResponse::getMessage).containsExactly("m5", "m4", "m3", "m2", "m1");
+    }
+
+    @Test
+    void latestTurnsAreLimited() {
+        assertThat(chatRepository.findLatestTurns(user.getId(), PageRequest.of(0, 3)))
+                .extracting(ChatTurnView::getMessage)
+                .containsExactly("m5", "m4", "m3");
+    }
+
+    @Test
+    void adminPageAppliesOptionalFiltersAndCursor() {
+        List<AdminChatRow> all = chatRepository.findAdminPage(null, null, null, null, null, null, PageRequest.of(0, 10));
+        assertThat(all).extracting(AdminChatRow::getMessage).containsExactly("m5", "m4", "m3", "m2", "m1");
+        assertThat(all.get(0).getUserEmail()).isEqualTo("pager@example.com");
+
+        List<AdminChatRow> next = chatRepository.findAdminPage(user.getId(), "NEUTRAL", null, null,
+                all.get(1).getCreatedAt(), all.get(1).getId(), PageRequest.of(0, 2));
+        assertThat(next).extracting(AdminChatRow::getMessage).containsExactly("m3", "m2");
+
+        assertThat(chatRepository.findAdminPage(null, "POSITIVE", null, null, null, null, PageRequest.of(0, 10))).isEmpty();
+
+        LocalDateTime createdAt = all.get(2).getCreatedAt();
+        assertThat(chatRepository.findAdminPage(null, null, createdAt.minusDays(1), createdAt.plusDays(1), null,
+                null, PageRequest.of(0, 10))).hasSize(5);
+        assertThat(chatRepository.findAdminPage(null, null, createdAt.plusDays(1), null, null,
+                null, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void adminPagesFollowCreationTimeRatherThanId() {
+        // Pooled ids are handed out in blocks per node, so a newer chat can have a lower id
+        Chat older = new Chat();
+        older.setUser(user);
+        older.setMessage("m0");
+        older.setResponse("r0");
+        older.setSentiment("NEUTRAL");
+        entityManager.persist(older);
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE chats SET created_at = ?1 WHERE id = ?2")
+                .setParameter(1, LocalDateTime.now().minusDays(1))
+                .setParameter(2, older.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        List<AdminChatRow> seen = new ArrayList<>();
+        List<AdminChatRow> page = chatRepository.findAdminPage(null, null, null, null, null, null, PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            AdminChatRow last = page.get(page.size() - 1);
+            page = chatRepository.findAdminPage(null, null, null, null, last.getCreatedAt(), last.getId(),
+                    PageRequest.of(0, 2));
+        }
+
+        assertThat(seen).extracting(AdminChatRow::getMessage).containsExactly("m5", "m4", "m3", "m2", "m1", "m0");
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class UserRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        persist("ann@example.com", User.Role.USER);
+        persist("bob@example.com", User.Role.ADMIN);
+        persist("anna_b@example.com", User.Role.USER);
+        persist("annaxb@example.com", User.Role.USER);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void adminPageAppliesOptionalFiltersAndCursor() {
+        List<User> all = userRepository.findAdminPage(null, null, null, null, PageRequest.of(0, 10));
+        assertThat(all).extracting(User::getEmail)
+                .containsExactly("annaxb@example.com", "anna_b@example.com", "bob@example.com", "ann@example.com");
+
+        assertThat(userRepository.findAdminPage(User.Role.ADMIN, null, null, null, PageRequest.of(0, 10)))
+                .extracting(User::getEmail).containsExactly("bob@example.com");
+        assertThat(userRepository.findAdminPage(User.Role.USER, "ANN", all.get(0).getCreatedAt(), all.get(0).getId(),
+                PageRequest.of(0, 1)))
+                .extracting(User::getEmail).containsExactly("anna_b@example.com");
+    }
+
+    @Test
+    void emailSearchTreatsWildcardsLiterally() {
+        assertThat(userRepository.findAdminPage(null, "anna_", null, null, PageRequest.of(0, 10)))
+                .extracting(User::getEmail).containsExactly("anna_b@example.com");
+    }
+
+    private void persist(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setRole(role);
+        entityManager.persist(user);
+    }
+}
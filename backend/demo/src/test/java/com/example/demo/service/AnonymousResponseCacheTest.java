@@ -0,0 +1,198 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnonymousResponseCacheTest {
+
+    @Test
+    void normalizedPromptsShareAnEntry() {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1 << 20, Duration.ofMinutes(10));
+        CountingLoader loader = new CountingLoader("1. Happy");
+
+        assertThat(cache.getOrLoad("Give me  happy songs!", "POSITIVE", "m", loader)).isCompletedWithValue(Optional.of("1. Happy"));
+        assertThat(cache.getOrLoad("give me happy songs", "POSITIVE", "m", loader)).isCompletedWithValue(Optional.of("1. Happy"));
+        assertThat(cache.getOrLoad("  GIVE ME\thappy songs?! ", "POSITIVE", "m", loader)).isCompletedWithValue(Optional.of("1. Happy"));
+        assertThat(loader.loads).hasValue(1);
+
+        cache.getOrLoad("give me happy songs", "NEUTRAL", "m", loader);
+        cache.getOrLoad("give me happy songs", "POSITIVE", "other", loader);
+        assertThat(loader.loads).hasValue(3);
+
+        assertThat(cache.stats()).containsEntry("hits", 2L).containsEntry("misses", 3L)
+                .containsEntry("entries", 3);
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1 << 20, Duration.ofMillis(50));
+        CountingLoader loader = new CountingLoader("hi");
+        cache.getOrLoad("hello", "NEUTRAL", "m", loader);
+        Thread.sleep(80);
+
+        assertThat(cache.getOrLoad("hello", "NEUTRAL", "m", loader)).isCompletedWithValue(Optional.of("hi"));
+        assertThat(loader.loads).hasValue(2);
+        assertThat(cache.stats()).containsEntry("expirations", 1L).containsEntry("entries", 1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPastByteCap() {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1_000, Duration.ofMinutes(10));
+        CountingLoader loader = new CountingLoader("x".repeat(150));
+        cache.getOrLoad("a", "NEUTRAL", "m", loader);
+        cache.getOrLoad("b", "NEUTRAL", "m", loader);
+        cache.getOrLoad("a", "NEUTRAL", "m", loader);
+        cache.getOrLoad("c", "NEUTRAL", "m", loader);
+        assertThat(loader.loads).hasValue(3);
+        assertThat((long) cache.stats().get("estimatedBytes")).isLessThanOrEqualTo(1_000);
+        assertThat(cache.stats()).containsEntry("evictions", 1L);
+
+        // a was used after b, so b went
+        cache.getOrLoad("a", "NEUTRAL", "m", loader);
+        cache.getOrLoad("c", "NEUTRAL", "m", loader);
+        assertThat(loader.loads).hasValue(3);
+        cache.getOrLoad("b", "NEUTRAL", "m", loader);
+        assertThat(loader.loads).hasValue(4);
+
+        CountingLoader huge = new CountingLoader("x".repeat(1_000));
+        assertThat(cache.getOrLoad("huge", "NEUTRAL", "m", huge)).isCompletedWithValue(Optional.of("x".repeat(1_000)));
+        cache.getOrLoad("huge", "NEUTRAL", "m", huge);
+        assertThat(huge.loads).hasValue(2);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1 << 20, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Optional<String>> upstream = new CompletableFuture<>();
+        int callers = 8;
+
+        List<CompletableFuture<Optional<String>>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(cache.getOrLoad("Try the demo", "NEUTRAL", "m", () -> {
+                loads.incrementAndGet();
+                return upstream;
+            }));
+        }
+        // Everyone piled up behind the first load before it finished
+        assertThat(results).noneMatch(CompletableFuture::isDone);
+        assertThat(cache.stats()).containsEntry("coalesced", (long) callers - 1).containsEntry("inFlight", 1);
+
+        upstream.complete(Optional.of("Hello!"));
+
+        assertThat(results).allSatisfy(result -> assertThat(result).isCompletedWithValue(Optional.of("Hello!")));
+        assertThat(loads).hasValue(1);
+        CountingLoader again = new CountingLoader("other");
+        assertThat(cache.getOrLoad("try the demo", "NEUTRAL", "m", again)).isCompletedWithValue(Optional.of("Hello!"));
+        assertThat(again.loads).hasValue(0);
+        assertThat(cache.stats()).containsEntry("inFlight", 0);
+    }
+
+    /**
+     * Callers racing on one key, some joining the flight and some arriving after it landed,
+     * load it once between them. Whether a caller slips between another's load and its own
+     * flight depends on scheduling, so this is a stress test rather than a precise one.
+     */
+    @Test
+    void racingMissesNeverLoadTwice() throws Exception {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1 << 20, Duration.ofMinutes(10));
+        int rounds = 200;
+        int callers = 8;
+        CountingLoader loader = new CountingLoader("hey");
+
+        try (ExecutorService threads = Executors.newFixedThreadPool(callers)) {
+            for (int round = 0; round < rounds; round++) {
+                String message = "question " + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Optional<String>>> results = new ArrayList<>();
+                for (int i = 0; i < callers; i++) {
+                    results.add(threads.submit(() -> {
+                        start.await();
+                        return cache.getOrLoad(message, "NEUTRAL", "m", loader).join();
+                    }));
+                }
+                start.countDown();
+                for (Future<Optional<String>> result : results) {
+                    assertThat(result.get()).contains("hey");
+                }
+            }
+        }
+
+        assertThat(loader.loads).hasValue(rounds);
+    }
+
+    @Test
+    void failedLoadIsNotSharedOrCached() {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1 << 20, Duration.ofMinutes(10));
+
+        assertThat(cache.getOrLoad("hi", "NEUTRAL", "m", () -> {
+            throw new TooManyRequestsException("slow down", 1);
+        })).failsWithin(Duration.ZERO).withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(TooManyRequestsException.class);
+        assertThat(cache.getOrLoad("hi", "NEUTRAL", "m", () -> CompletableFuture.completedFuture(Optional.empty())))
+                .isCompletedWithValue(Optional.empty());
+        assertThat(cache.getOrLoad("hi", "NEUTRAL", "m", () -> CompletableFuture.completedFuture(Optional.of("hey"))))
+                .isCompletedWithValue(Optional.of("hey"));
+        assertThat(cache.stats()).containsEntry("inFlight", 0).containsEntry("entries", 1);
+    }
+
+    @Test
+    void waitersRetryOnTheirOwnAccountWhenTheLoaderFails() {
+        AnonymousResponseCache cache = new AnonymousResponseCache(true, 1 << 20, Duration.ofMinutes(10));
+        CompletableFuture<Optional<String>> first = new CompletableFuture<>();
+
+        CompletableFuture<Optional<String>> leader = cache.getOrLoad("hi", "NEUTRAL", "m", () -> first);
+        CompletableFuture<Optional<String>> waiter = cache.getOrLoad("hi", "NEUTRAL", "m",
+                () -> CompletableFuture.completedFuture(Optional.of("hey")));
+        first.completeExceptionally(new TooManyRequestsException("slow down", 1));
+
+        assertThat(leader).isCompletedExceptionally();
+        assertThat(waiter).isCompletedWithValue(Optional.of("hey"));
+        CountingLoader again = new CountingLoader("other");
+        assertThat(cache.getOrLoad("hi", "NEUTRAL", "m", again)).isCompletedWithValue(Optional.of("hey"));
+        assertThat(again.loads).hasValue(0);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        AnonymousResponseCache cache = new AnonymousResponseCache(false, 1 << 20, Duration.ofMinutes(10));
+        CountingLoader loader = new CountingLoader("hi");
+
+        cache.getOrLoad("hello", "NEUTRAL", "m", loader);
+        cache.getOrLoad("hello", "NEUTRAL", "m", loader);
+
+        assertThat(loader.loads).hasValue(2);
+        assertThat(cache.stats()).containsEntry("entries", 0);
+    }
+
+    /** Answers every load with the same reply and counts how often it was asked. */
+    private static final class CountingLoader implements Supplier<CompletableFuture<Optional<String>>> {
+
+        private final String reply;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        CountingLoader(String reply) {
+            this.reply = reply;
+        }
+
+        @Override
+        public CompletableFuture<Optional<String>> get() {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(Optional.of(reply));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ChatExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatExportService exportService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ChatExportService(jdbcTemplate, objectMapper);
+        user = new User();
+        user.setEmail("export@example.com");
+        user.setPassword("x");
+        entityManager.persist(user);
+        persist("hello", "POSITIVE");
+        persist("line one\nsaid \"hi\", then left", "NEGATIVE");
+        entityManager.flush();
+    }
+
+    @Test
+    void writesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.export(new ChatFilter(user.getId(), null, null, null), ChatExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(second.path("message").asText()).isEqualTo("line one\nsaid \"hi\", then left");
+        assertThat(second.path("userEmail").asText()).isEqualTo("export@example.com");
+    }
+
+    @Test
+    void flushesTheClientStreamOnlyEveryFewRows() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            persist("more " + i, "NEUTRAL");
+        }
+        entityManager.flush();
+        ReflectionTestUtils.setField(exportService, "flushEveryRows", 4);
+        CountingOutputStream out = new CountingOutputStream();
+
+        long rows = exportService.export(new ChatFilter(user.getId(), null, null, null), ChatExportService.Format.NDJSON, out);
+
+        assertThat(rows).isEqualTo(6);
+        // Once after the fourth row, once at the end
+        assertThat(out.flushes).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(6).allMatch(line -> line.startsWith("{"));
+    }
+
+    @Test
+    void csvQuotesFieldsAndAppliesFilters() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.export(new ChatFilter(null, "negative", null, null), ChatExportService.Format.CSV, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertThat(rows).isEqualTo(1);
+        assertThat(csv).startsWith("id,userId,userEmail,sentiment,moodScore,createdAt,message,response\r\n");
+        assertThat(csv).contains(",NEGATIVE,").contains("\"line one\nsaid \"\"hi\"\", then left\"");
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    private void persist(String message, String sentiment) {
+        Chat chat = new Chat();
+        chat.setUser(user);
+        chat.setMessage(message);
+        chat.setResponse("ok");
+        chat.setSentiment(sentiment);
+        chat.setMoodScore(0.5);
+        entityManager.persist(chat);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryConversationStore store = new InMemoryConversationStore(10, 5, 1_000_000, Duration.ofMinutes(5));
+    private final ChatMetrics metrics = new ChatMetrics(registry, store);
+
+    @Test
+    void countsReportedTokensByModelAndType() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        metrics.recordTokenUsage("llama", "chat", objectMapper.readTree("{\"prompt_tokens\":120,\"completion_tokens\":30}"));
+        metrics.recordTokenUsage("llama", "chat", objectMapper.readTree("{\"prompt_tokens\":80,\"completion_tokens\":20}"));
+        metrics.recordTokenUsage("llama", "chat", objectMapper.missingNode());
+
+        assertThat(registry.get("llm.tokens").tag("type", "prompt").counter().count()).isEqualTo(200);
+        assertThat(registry.get("llm.tokens").tag("type", "completion").tag("purpose", "chat").counter().count())
+                .isEqualTo(50);
+    }
+
+    @Test
+    void tracksFallbacksAndConversationMemory() {
+        metrics.recordFallback("circuit_open");
+        metrics.recordFallback("circuit_open");
+        store.append("7", "hello", "hi");
+
+        assertThat(registry.get("chat.fallbacks").tag("reason", "circuit_open").counter().count()).isEqualTo(2);
+        assertThat(registry.get("conversation.memory.users").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("conversation.memory.size").gauge().value()).isPositive();
+    }
+}
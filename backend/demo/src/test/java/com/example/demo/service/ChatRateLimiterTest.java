@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatRateLimiterTest {
+
+    @Test
+    void throttlesEachUserSeparatelyWithRetryAfter() {
+        ChatRateLimiter limiter = new ChatRateLimiter(2, 1, Duration.ofMinutes(1), 1_000, 1_000_000, 500);
+
+        limiter.admitUser(1L, "hi");
+        limiter.admitUser(1L, "hi");
+        assertThatThrownBy(() -> limiter.admitUser(1L, "hi"))
+                .isInstanceOfSatisfying(TooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isBetween(29L, 31L));
+        limiter.admitUser(2L, "hi");
+
+        limiter.admitAnonymous("10.0.0.1", "hi");
+        assertThatThrownBy(() -> limiter.admitAnonymous("10.0.0.1", "hi"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(limiter.getStats()).containsEntry("userThrottled", 1L).containsEntry("anonymousThrottled", 1L);
+    }
+
+    @Test
+    void globalBudgetRejectsWithoutChargingTheUser() {
+        // Room for two messages of ~1000 tokens each
+        ChatRateLimiter limiter = new ChatRateLimiter(10, 10, Duration.ofMinutes(1), 1_000, 2_100, 500);
+
+        limiter.admitUser(1L, "hi");
+        limiter.admitUser(2L, "hi");
+        assertThatThrownBy(() -> limiter.admitUser(3L, "hi"))
+                .isInstanceOfSatisfying(TooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isPositive());
+        assertThat(limiter.getStats()).containsEntry("budgetThrottled", 1L);
+    }
+
+    @Test
+    void budgetNeverOverspendsUnderContention() throws InterruptedException {
+        UpstreamTokenBudget budget = new UpstreamTokenBudget(1_000, Duration.ofHours(1));
+        AtomicLong admitted = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    if (budget.tryAcquire(7) == 0) {
+                        admitted.addAndGet(7);
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(admitted.get()).isBetween(990L, 1_000L);
+        assertThat(budget.available()).isLessThan(7);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ChatRequest;
+import com.example.demo.dto.ChatResponse;
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTest {
+
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final OpenAIService openAIService = mock(OpenAIService.class);
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        chatService = new ChatService(chatRepository, userRepository, openAIService,
+                new SentimentAnalyzer(new ClassPathResource("sentiment-lexicon.txt")),
+                new SyncTaskExecutor(), new TransactionTemplate(transactionManager), mock(MoodRollupService.class),
+                mock(ChatRateLimiter.class), new AnonymousResponseCache(false, 0, Duration.ZERO),
+                mock(PromptTemplates.class), mock(ChatWriteBehind.class), new ChatMetrics(meterRegistry,
+                        new InMemoryConversationStore(10, 5, 1_000_000, Duration.ofMinutes(5))));
+
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("user@example.com");
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        when(chatRepository.save(any(Chat.class))).thenAnswer(invocation -> {
+            assertThat(transactionManager.active.get())
+                    .as("chat insert runs inside the write transaction")
+                    .isEqualTo(1);
+            Chat chat = invocation.getArgument(0);
+            chat.setId(42L);
+            return chat;
+        });
+    }
+
+    @Test
+    void upstreamCallRunsWithoutAnOpenTransaction() {
+        AtomicInteger activeDuringUpstream = new AtomicInteger(-1);
+        when(openAIService.getChatResponse(eq("I feel great"), eq("7"), eq("POSITIVE"), isNull())).thenAnswer(invocation -> {
+            activeDuringUpstream.set(transactionManager.active.get());
+            return CompletableFuture.completedFuture("Glad to hear it!");
+        });
+
+        ChatRequest request = new ChatRequest();
+        request.setMessage("I feel great");
+
+        ChatResponse response = chatService.sendMessage(request, 7L).join();
+
+        assertThat(activeDuringUpstream.get()).isZero();
+        assertThat(transactionManager.committed.get()).isEqualTo(1);
+        assertThat(response.getId()).isEqualTo(42L);
+        assertThat(response.getResponse()).isEqualTo("Glad to hear it!");
+        assertThat(response.getSentiment()).isEqualTo("POSITIVE");
+        assertThat(response.getMoodScore()).isEqualTo(0.731);
+        for (String stage : new String[] {"admission", "sentiment", "upstream", "persistence"}) {
+            assertThat(meterRegistry.get("chat.stage").tag("stage", stage).tag("streamed", "false").timer().count())
+                    .as(stage).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void streamSendsTokenEventsThenDoneWithTheSavedChat() {
+        when(openAIService.streamChatResponse(eq("I feel great"), eq("7"), eq("POSITIVE"), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<String> onToken = invocation.getArgument(4);
+                    onToken.accept("Glad");
+                    onToken.accept(" to hear it!");
+                    return "Glad to hear it!";
+                });
+        ChatRequest request = new ChatRequest();
+        request.setMessage("I feel great");
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        chatService.streamMessage(request, 7L, emitter);
+
+        assertThat(emitter.events).hasSize(3);
+        assertThat(emitter.events.get(0)).isEqualTo("event:token\ndata:Glad\n\n");
+        assertThat(emitter.events.get(1)).isEqualTo("event:token\ndata: to hear it!\n\n");
+        assertThat(emitter.events.get(2)).startsWith("event:done\ndata:").contains("id=42");
+        assertThat(emitter.completed).isTrue();
+        assertThat(transactionManager.committed.get()).isEqualTo(1);
+    }
+
+    @Test
+    void streamThatBreaksOffEndsWithAnErrorAndSavesNothing() {
+        when(openAIService.streamChatResponse(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(4);
+            onToken.accept("Glad");
+            throw new IncompleteReplyException("Reply broke off after 4 characters", new IOException("reset"));
+        });
+        ChatRequest request = new ChatRequest();
+        request.setMessage("I feel great");
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        chatService.streamMessage(request, 7L, emitter);
+
+        assertThat(emitter.events).hasSize(2);
+        assertThat(emitter.events.get(1)).startsWith("event:error\ndata:").contains("broke off");
+        assertThat(emitter.completed).isTrue();
+        assertThat(transactionManager.committed.get()).isZero();
+    }
+
+    /** Keeps each event as it would be written to the response. */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                event.append(part.getData());
+            }
+            events.add(event.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    /**
+     * Stands in for the JPA transaction manager: a transaction being active is exactly
+     * when a pooled connection would be checked out.
+     */
+    private static class CountingTransactionManager implements PlatformTransactionManager {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger committed = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            active.incrementAndGet();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            active.decrementAndGet();
+            committed.incrementAndGet();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            active.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The writer commits on its own thread, so these tests run without the usual test
+ * transaction and clean up after themselves.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehind;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(MoodRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatWriteBehindTest {
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MoodRollupService moodRollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM chats");
+        jdbcTemplate.update("DELETE FROM user_mood_rollups");
+        jdbcTemplate.update("DELETE FROM daily_mood_rollups");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void writesQueuedChatsInBatchesAndDrainsOnStop() throws InterruptedException {
+        User alice = saveUser("alice@example.com");
+        User bob = saveUser("bob@example.com");
+        ChatWriteBehind writeBehind = writeBehind(5, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 12; i++) {
+            User user = i % 2 == 0 ? alice : bob;
+            writeBehind.submit(user.getId(), "m" + i, "r" + i, i % 3 == 0 ? "POSITIVE" : "NEUTRAL", 0.5);
+        }
+        // The last two chats are still waiting for a full batch or the flush interval
+        writeBehind.stop();
+
+        assertThat(chatRepository.count()).isEqualTo(12);
+        Map<String, Object> stats = writeBehind.getStats();
+        assertThat(stats).containsEntry("written", 12L).containsEntry("queued", 0).containsEntry("failed", 0L);
+        assertThat((Long) stats.get("batches")).isBetween(3L, 4L);
+
+        Map<String, Object> summary = moodRollupService.getGlobalSummary(1);
+        assertThat(summary.get("totalChats")).isEqualTo(12L);
+        assertThat(summary.get("sentimentDistribution"))
+                .isEqualTo(Map.of("POSITIVE", 4L, "NEGATIVE", 0L, "NEUTRAL", 8L));
+        assertThat(moodRollupService.getUserSummary(alice.getId()).get("totalChats")).isEqualTo(6L);
+    }
+
+    @Test
+    void batchIsInsertedWithOneStatement() throws InterruptedException {
+        User alice = saveUser("alice@example.com");
+        ChatWriteBehind writeBehind = writeBehind(20, Duration.ofSeconds(5));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 20; i++) {
+            writeBehind.submit(alice.getId(), "m" + i, "r" + i, "NEUTRAL", 0.5);
+        }
+        writeBehind.stop();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(20);
+        // One batched insert plus the id block and rollup upserts; unbatched it is one
+        // insert statement per chat
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+    }
+
+    @Test
+    void flushesPartialBatchAfterInterval() throws InterruptedException {
+        User alice = saveUser("alice@example.com");
+        ChatWriteBehind writeBehind = writeBehind(50, Duration.ofMillis(50));
+        try {
+            writeBehind.submit(alice.getId(), "hello", "hi", "NEUTRAL", 0.5);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (chatRepository.count() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(chatRepository.count()).isEqualTo(1);
+        } finally {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void badChatDoesNotSinkItsBatch() throws InterruptedException {
+        User alice = saveUser("alice@example.com");
+        ChatWriteBehind writeBehind = writeBehind(10, Duration.ofSeconds(5));
+
+        writeBehind.submit(alice.getId(), "one", "r", "NEUTRAL", 0.5);
+        writeBehind.submit(-1L, "orphan", "r", "NEUTRAL", 0.5);
+        writeBehind.submit(alice.getId(), "two", "r", "NEUTRAL", 0.5);
+        writeBehind.stop();
+
+        assertThat(chatRepository.count()).isEqualTo(2);
+        assertThat(writeBehind.getStats()).containsEntry("written", 2L).containsEntry("failed", 1L);
+        assertThat(moodRollupService.getUserSummary(alice.getId()).get("totalChats")).isEqualTo(2L);
+    }
+
+    private ChatWriteBehind writeBehind(int batchSize, Duration flushInterval) {
+        ChatWriteBehind writeBehind = new ChatWriteBehind(chatRepository, userRepository, moodRollupService,
+                transactionTemplate, true, 100, batchSize, flushInterval, Duration.ofSeconds(1), Duration.ofSeconds(10));
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(20);
+
+    @Test
+    void opensOnFailureRateAndRecoversThroughHalfOpen() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1.0, TimeUnit.SECONDS.toNanos(10),
+                TimeUnit.MILLISECONDS.toNanos(50), 2);
+
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, true);
+        assertThat(breaker.state()).as("below minimum calls").isEqualTo(CircuitBreaker.State.CLOSED);
+        call(breaker, false);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+
+        Thread.sleep(60);
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).as("only two trial calls").isNull();
+
+        breaker.onSuccess(first, FAST);
+        breaker.onSuccess(second, FAST);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.stats()).containsEntry("windowCalls", 0).containsEntry("timesOpened", 1L);
+    }
+
+    @Test
+    void failedTrialReopens() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1.0, SLOW, TimeUnit.MILLISECONDS.toNanos(20), 1);
+        call(breaker, false);
+        call(breaker, false);
+        Thread.sleep(30);
+
+        breaker.onFailure(breaker.tryAcquire(), FAST);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+    }
+
+    @Test
+    void callsFromBeforeTheBreakerOpenedDoNotCountAsTrials() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1.0, SLOW, TimeUnit.MILLISECONDS.toNanos(20), 1);
+        CircuitBreaker.Permit lateSuccess = breaker.tryAcquire();
+        CircuitBreaker.Permit lateFailure = breaker.tryAcquire();
+        call(breaker, false);
+        call(breaker, false);
+        Thread.sleep(30);
+
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        breaker.onSuccess(lateSuccess, FAST);
+        breaker.onFailure(lateFailure, FAST);
+        assertThat(breaker.state()).as("stale outcomes are ignored").isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).as("the trial slot is still taken").isNull();
+
+        breaker.onSuccess(trial, FAST);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensOnSlowCallsAndForgetsOldOutcomes() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 0.75, TimeUnit.SECONDS.toNanos(10),
+                TimeUnit.MINUTES.toNanos(1), 1);
+        // Failures slide out of the window
+        call(breaker, false);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+        assertThat(breaker.stats()).containsEntry("failureRate", 0.0);
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(breaker.tryAcquire(), SLOW);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private static void call(CircuitBreaker breaker, boolean success) {
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        assertThat(permit).isNotNull();
+        if (success) {
+            breaker.onSuccess(permit, FAST);
+        } else {
+            breaker.onFailure(permit, FAST);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ConversationContextBuilderTest {
+
+    private static final PromptTemplates.PromptTemplate SYSTEM =
+            new PromptTemplates.PromptTemplate("v1/NEUTRAL/default", "Be kind.", new RawValue("{}"));
+
+    private final InMemoryConversationStore store = new InMemoryConversationStore(10, 5, 1_000_000, Duration.ofMinutes(5));
+    private final LlmRouter llmRouter = new LlmRouter(new ObjectMapper(), new MockEnvironment()
+            .withProperty("llm.providers", "stub")
+            .withProperty("llm.provider.stub.type", "stub"));
+    private final ConversationSummarizer summarizer = new ConversationSummarizer(llmRouter, mock(ChatMetrics.class), true, 100, 200, 4);
+
+    @Test
+    void keepsNewestTurnsThatFitTheBudgetAndFoldsTheRest() throws Exception {
+        store.append("7", "x".repeat(400), "long answer");
+        store.append("7", "q2", "a2");
+        store.append("7", "q3", "a3");
+
+        List<Object> messages = builder(80).build(SYSTEM, "7", "now");
+        awaitFolds(1);
+
+        assertThat(messages).hasSize(6);
+        assertThat(messages.get(0)).isSameAs(SYSTEM.message());
+        assertThat(content(messages.get(1))).isEqualTo("q2");
+        assertThat(content(messages.get(5))).isEqualTo("now");
+        assertThat(summarizer.stats()).containsEntry("foldedTurns", 1L);
+        assertThat(summarizer.summary("7")).hasValueSatisfying(s -> assertThat(s).startsWith("Stub reply to:"));
+    }
+
+    @Test
+    void includesTheSummaryAndOnlyFoldsNewTurns() throws Exception {
+        ConversationContextBuilder builder = builder(1500);
+        for (int i = 1; i <= 5; i++) {
+            store.append("7", "q" + i, "a" + i);
+        }
+
+        builder.build(SYSTEM, "7", "first");
+        awaitFolds(1);
+        store.append("7", "q6", "a6");
+        List<Object> messages = builder.build(SYSTEM, "7", "second");
+        awaitFolds(2);
+
+        // The store keeps five turns, the window four: q1, then q2, fell out one at a time
+        assertThat(summarizer.stats()).containsEntry("folds", 2L).containsEntry("foldedTurns", 2L);
+        assertThat(content(messages.get(1))).startsWith("Summary of the earlier conversation");
+        assertThat(content(messages.get(2))).isEqualTo("q3");
+        assertThat(messages).hasSize(2 + 8 + 1);
+    }
+
+    @Test
+    void anonymousPromptsHaveNoHistory() {
+        assertThat(builder(1500).build(SYSTEM, null, "hi")).hasSize(2);
+    }
+
+    private ConversationContextBuilder builder(int tokenBudget) {
+        ConversationHistoryLoader loader = new ConversationHistoryLoader(mock(ChatRepository.class), store);
+        return new ConversationContextBuilder(loader, store, summarizer, tokenBudget);
+    }
+
+    // Folding runs off the calling thread
+    private void awaitFolds(long folds) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while ((Long) summarizer.stats().get("folds") < folds && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static String content(Object message) {
+        return String.valueOf(((Map<?, ?>) message).get("content"));
+    }
+}
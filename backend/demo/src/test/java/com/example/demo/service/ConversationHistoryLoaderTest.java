@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.ChatTurnView;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationHistoryLoaderTest {
+
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final InMemoryConversationStore memory = new InMemoryConversationStore(10, 5, 1_000_000, Duration.ofMinutes(5));
+    private final ConversationHistoryLoader loader = new ConversationHistoryLoader(chatRepository, memory);
+
+    @Test
+    void rehydratesFromDatabaseOnMissAndCachesResult() {
+        when(chatRepository.findLatestTurns(7L, PageRequest.of(0, 5)))
+                .thenReturn(List.of(turn("q3", "a3"), turn("q2", "a2"), turn("q1", "a1")));
+
+        List<ConversationTurn> turns = loader.recentTurns("7", 2);
+
+        assertThat(turns).extracting(ConversationTurn::userMessage).containsExactly("q2", "q3");
+        assertThat(memory.recentTurns("7", 5)).extracting(ConversationTurn::userMessage)
+                .containsExactly("q1", "q2", "q3");
+    }
+
+    @Test
+    void usesCacheWhenPresent() {
+        memory.append("7", "cached", "reply");
+
+        assertThat(loader.recentTurns("7", 3)).hasSize(1);
+        verify(chatRepository, never()).findLatestTurns(any(), any());
+    }
+
+    private static ChatTurnView turn(String message, String response) {
+        return new ChatTurnView() {
+            @Override
+            public String getMessage() {
+                return message;
+            }
+
+            @Override
+            public String getResponse() {
+                return response;
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationSummarizerTest {
+
+    @Test
+    void recordsTheTokensOfEachFoldOnce() throws Exception {
+        JsonNode response = new ObjectMapper().readTree("""
+                {"model": "summary-model",
+                 "choices": [{"message": {"content": "The user is tired."}}],
+                 "usage": {"prompt_tokens": 42, "completion_tokens": 7}}""");
+        LlmRouter llmRouter = mock(LlmRouter.class);
+        when(llmRouter.complete(any())).thenReturn(CompletableFuture.completedFuture(response));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChatMetrics chatMetrics = new ChatMetrics(registry,
+                new InMemoryConversationStore(10, 5, 1_000_000, Duration.ofMinutes(5)));
+        ConversationSummarizer summarizer = new ConversationSummarizer(llmRouter, chatMetrics, true, 100, 200, 4);
+
+        summarizer.fold("7", List.of(new ConversationTurn("q1", "a1"))).get(2, TimeUnit.SECONDS);
+
+        assertThat(summarizer.summary("7")).contains("The user is tired.");
+        assertThat(tokens(registry, "prompt")).isEqualTo(42.0);
+        assertThat(tokens(registry, "completion")).isEqualTo(7.0);
+    }
+
+    private static double tokens(SimpleMeterRegistry registry, String type) {
+        return registry.get("llm.tokens")
+                .tags("model", "summary-model", "purpose", "summary", "type", type)
+                .counter().count();
+    }
+}
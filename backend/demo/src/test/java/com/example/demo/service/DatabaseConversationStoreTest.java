@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(DatabaseConversationStore.class)
+@TestPropertySource(properties = {
+        "conversation.store=database",
+        "conversation.memory.max-turns=3"
+})
+class DatabaseConversationStoreTest {
+
+    @Autowired
+    private DatabaseConversationStore store;
+
+    @Test
+    void keepsLastTurnsAcrossStoreInstances() {
+        for (int i = 1; i <= 4; i++) {
+            store.append("5", "q" + i, "a" + i);
+        }
+
+        assertThat(store.recentTurns("5", 10)).extracting(ConversationTurn::userMessage)
+                .containsExactly("q2", "q3", "q4");
+        assertThat(store.recentTurns("5", 1)).extracting(ConversationTurn::assistantMessage)
+                .containsExactly("a4");
+    }
+
+    @Test
+    void seedDoesNotOverwriteExistingContext() {
+        store.append("6", "live", "reply");
+        store.seed("6", List.of(new ConversationTurn("old", "old reply")));
+
+        assertThat(store.recentTurns("6", 3)).extracting(ConversationTurn::userMessage).containsExactly("live");
+    }
+
+    @Test
+    void clearRemovesContext() {
+        store.append("8", "q", "a");
+        store.clear("8");
+
+        assertThat(store.recentTurns("8", 3)).isEmpty();
+    }
+
+    @Test
+    void codecRoundTripsUnicodeAndLongMessages() {
+        List<ConversationTurn> turns = List.of(
+                new ConversationTurn("I feel 😊 today", "Glad to hear it 💙"),
+                new ConversationTurn("x".repeat(70_000), ""));
+
+        assertThat(ConversationCodec.decode(ConversationCodec.encode(turns))).isEqualTo(turns);
+    }
+}
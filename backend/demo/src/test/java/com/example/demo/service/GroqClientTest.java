@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the client against a local stub whose answer depends on the request number.
+ */
+class GroqClientTest {
+
+    private static final String OK = "{\"choices\":[{\"message\":{\"content\":\"hi\"}}]}";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile IntFunction<Reply> replies;
+    private volatile String lastBody;
+    private HttpServer upstream;
+
+    @BeforeEach
+    void startStubUpstream() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 50);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/chat", exchange -> {
+            lastBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            respond(exchange, replies.apply(requests.incrementAndGet()));
+        });
+        upstream.start();
+    }
+
+    @AfterEach
+    void stopStubUpstream() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void retriesTransientFailures() {
+        replies = n -> n < 3 ? new Reply(503, "busy", 0) : new Reply(200, OK, 0);
+        GroqClient client = client(0, 10);
+
+        JsonNode response = client.complete(Map.of("max_tokens", 5)).join();
+
+        assertThat(response.path("choices").get(0).path("message").path("content").asText()).isEqualTo("hi");
+        assertThat(requests).hasValue(3);
+        assertThat(lastBody).contains("\"model\":\"test-model\"");
+        assertThat(client.getStats()).containsEntry("retries", 2L);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        replies = n -> new Reply(400, "bad request", 0);
+        GroqClient client = client(0, 10);
+
+        assertThatThrownBy(() -> client.complete(Map.of("max_tokens", 5)).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(UpstreamHttpException.class);
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void openBreakerFailsFastWithoutCallingUpstream() {
+        replies = n -> new Reply(500, "down", 0);
+        GroqClient client = client(0, 3);
+
+        // Three failed attempts (one call plus two retries) fill the window
+        assertThatThrownBy(() -> client.complete(Map.of("max_tokens", 5)).join())
+                .hasCauseInstanceOf(UpstreamHttpException.class);
+        int callsWhenOpened = requests.get();
+        assertThat(callsWhenOpened).isEqualTo(3);
+
+        assertThatThrownBy(() -> client.complete(Map.of("max_tokens", 5)).join())
+                .hasCauseInstanceOf(CircuitOpenException.class);
+        assertThat(requests).hasValue(callsWhenOpened);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> breaker = (Map<String, Object>) client.getStats().get("circuitBreaker");
+        assertThat(breaker).containsEntry("state", "OPEN");
+    }
+
+    @Test
+    void hedgedRequestAnswersWhenPrimaryIsSlow() {
+        replies = n -> new Reply(200, OK, n == 1 ? 2_000 : 0);
+        GroqClient client = client(50, 10);
+
+        long start = System.nanoTime();
+        client.complete(Map.of("max_tokens", 5)).join();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(1_500);
+        assertThat(client.getStats()).containsEntry("hedges", 1L);
+        // The win is counted just after the caller is woken up
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (!Long.valueOf(1).equals(client.getStats().get("hedgeWins")) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(client.getStats()).containsEntry("hedgeWins", 1L);
+    }
+
+    @Test
+    void streamThatStallsMidwayTimesOutAndFreesItsSlot() {
+        replies = n -> new Reply(200, "data: {\"choices\":[{\"delta\":{\"content\":\"Hel\"}}]}\n", 0, 10_000);
+        GroqClient client = client(0, 10, 300);
+        List<String> lines = new ArrayList<>();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> client.stream(Map.of("max_tokens", 5), lines::add))
+                .isInstanceOf(HttpTimeoutException.class);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(lines).containsExactly("data: {\"choices\":[{\"delta\":{\"content\":\"Hel\"}}]}");
+        assertThat(elapsedMs).isLessThan(5_000);
+        // A line was delivered, so no retry
+        assertThat(requests).hasValue(1);
+        assertThat(client.getStats()).containsEntry("inFlight", 0);
+    }
+
+    private GroqClient client(long hedgeDelayMs, int breakerMinimumCalls) {
+        return client(hedgeDelayMs, breakerMinimumCalls, 5000);
+    }
+
+    private GroqClient client(long hedgeDelayMs, int breakerMinimumCalls, long readTimeoutMs) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("groq.http.connect-timeout-ms", "1000")
+                .withProperty("groq.http.read-timeout-ms", String.valueOf(readTimeoutMs))
+                .withProperty("groq.retry.base-delay-ms", "10")
+                .withProperty("groq.retry.max-delay-ms", "50")
+                .withProperty("groq.breaker.window-size", "10")
+                .withProperty("groq.breaker.slow-call-rate-threshold", "1.0")
+                .withProperty("groq.breaker.open-ms", "60000")
+                .withProperty("groq.breaker.half-open-calls", "1")
+                // Per-provider settings win over the shared groq.* ones
+                .withProperty("groq.breaker.minimum-calls", "1")
+                .withProperty("llm.provider.test.breaker.minimum-calls", String.valueOf(breakerMinimumCalls))
+                .withProperty("llm.provider.test.hedge.delay-ms", String.valueOf(hedgeDelayMs));
+        return new GroqClient("test", "http://127.0.0.1:" + upstream.getAddress().getPort() + "/chat", "test",
+                "test-model", new ObjectMapper(), environment);
+    }
+
+    private static void respond(HttpExchange exchange, Reply reply) throws IOException {
+        try {
+            Thread.sleep(reply.delayMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+        // A stalling reply is chunked, so the client cannot tell it is already complete
+        exchange.sendResponseHeaders(reply.status(), reply.stallMs() > 0 ? 0 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+            out.flush();
+            Thread.sleep(reply.stallMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** {@code stallMs} keeps the connection open without sending anything after the body. */
+    private record Reply(int status, String body, long delayMs, long stallMs) {
+
+        Reply(int status, String body, long delayMs) {
+            this(status, body, delayMs, 0);
+        }
+    }
+}
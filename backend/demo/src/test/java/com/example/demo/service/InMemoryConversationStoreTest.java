@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryConversationStoreTest {
+
+    @Test
+    void keepsOnlyTheLastTurnsPerUser() {
+        InMemoryConversationStore memory = new InMemoryConversationStore(10, 3, 1_000_000, Duration.ofMinutes(5));
+        for (int i = 1; i <= 5; i++) {
+            memory.append("1", "q" + i, "a" + i);
+        }
+
+        List<ConversationTurn> turns = memory.recentTurns("1", 10);
+        assertThat(turns).extracting(ConversationTurn::userMessage).containsExactly("q3", "q4", "q5");
+        assertThat(memory.recentTurns("1", 2)).extracting(ConversationTurn::assistantMessage)
+                .containsExactly("a4", "a5");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUserWhenFull() {
+        InMemoryConversationStore memory = new InMemoryConversationStore(2, 3, 1_000_000, Duration.ofMinutes(5));
+        memory.append("1", "q", "a");
+        memory.append("2", "q", "a");
+        memory.recentTurns("1", 3);
+        memory.append("3", "q", "a");
+
+        assertThat(memory.recentTurns("2", 3)).isEmpty();
+        assertThat(memory.recentTurns("1", 3)).hasSize(1);
+        assertThat(memory.recentTurns("3", 3)).hasSize(1);
+        assertThat(memory.stats()).containsEntry("evictions", 1L).containsEntry("users", 2);
+    }
+
+    @Test
+    void evictsWhenOverByteBudget() {
+        InMemoryConversationStore memory = new InMemoryConversationStore(100, 3, 2_000, Duration.ofMinutes(5));
+        memory.append("1", "x".repeat(400), "y".repeat(400));
+        memory.append("2", "x".repeat(400), "y".repeat(400));
+
+        assertThat(memory.recentTurns("1", 3)).isEmpty();
+        assertThat(memory.recentTurns("2", 3)).hasSize(1);
+        assertThat((long) memory.stats().get("estimatedBytes")).isLessThanOrEqualTo(2_000L);
+    }
+
+    @Test
+    void expiresIdleUsers() throws InterruptedException {
+        InMemoryConversationStore memory = new InMemoryConversationStore(10, 3, 1_000_000, Duration.ofMillis(20));
+        memory.append("1", "q", "a");
+        Thread.sleep(40);
+
+        assertThat(memory.recentTurns("1", 3)).isEmpty();
+        assertThat(memory.stats()).containsEntry("expirations", 1L).containsEntry("users", 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-key-that-is-at-least-256-bits-long-for-hs256";
+
+    private final JwtService jwtService = new JwtService(SECRET, 86_400_000L, 100, Duration.ofMinutes(1));
+
+    @Test
+    void verifyReturnsClaimsAndServesRepeatsFromCache() {
+        String token = jwtService.generateToken(3L, "user@example.com", "ADMIN");
+
+        JwtClaims claims = jwtService.verify(token).orElseThrow();
+        assertThat(claims.userId()).isEqualTo(3L);
+        assertThat(claims.email()).isEqualTo("user@example.com");
+        assertThat(claims.role()).isEqualTo("ADMIN");
+        assertThat(jwtService.verify(token)).contains(claims);
+        assertThat(jwtService.getCacheStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() {
+        String token = jwtService.generateToken(3L, "user@example.com", "USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThat(jwtService.verify(tampered)).isEmpty();
+        assertThat(jwtService.verify("not-a-token")).isEmpty();
+
+        JwtService shortLived = new JwtService(SECRET, -1_000L, 100, Duration.ofMinutes(1));
+        assertThat(shortLived.verify(shortLived.generateToken(3L, "user@example.com"))).isEmpty();
+    }
+
+    @Test
+    void revokedUsersAreRefusedEvenWhenCached() {
+        String token = jwtService.generateToken(9L, "gone@example.com", "USER");
+        assertThat(jwtService.verify(token)).isPresent();
+
+        jwtService.revokeUser(9L);
+
+        assertThat(jwtService.verify(token)).isEmpty();
+        assertThat(jwtService.verify(jwtService.generateToken(3L, "user@example.com", "USER"))).isPresent();
+    }
+
+    @Test
+    void cacheIsBounded() {
+        JwtService small = new JwtService(SECRET, 86_400_000L, 2, Duration.ofMinutes(1));
+        for (int i = 0; i < 5; i++) {
+            small.verify(small.generateToken((long) i, "user" + i + "@example.com"));
+        }
+        assertThat(small.getCacheStats()).containsEntry("size", 2);
+    }
+}
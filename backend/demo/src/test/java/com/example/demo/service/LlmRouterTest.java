@@ -0,0 +1,137 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmRouterTest {
+
+    private static final Map<String, Object> REQUEST = Map.of(
+            "messages", List.of(Map.of("role", "user", "content", "hello")),
+            "max_tokens", 100);
+
+    @Test
+    void failsOverToTheNextProvider() throws Exception {
+        LlmRouter router = router(new MockEnvironment()
+                .withProperty("llm.providers", "broken,backup")
+                .withProperty("llm.provider.broken.type", "stub")
+                .withProperty("llm.provider.broken.fail", "true")
+                .withProperty("llm.provider.backup.type", "stub"));
+
+        JsonNode response = router.complete(REQUEST).join();
+        List<String> lines = new ArrayList<>();
+        router.stream(REQUEST, lines::add);
+
+        assertThat(response.path("choices").get(0).path("message").path("content").asText())
+                .isEqualTo("Stub reply to: hello");
+        assertThat(lines).last().isEqualTo("data: [DONE]");
+        assertThat(router.getStats()).containsEntry("failovers", 2L);
+        assertThat(providerStats(router, "broken")).containsEntry("failed", 2L);
+    }
+
+    @Test
+    void prefersTheFasterProviderOnceMeasured() {
+        LlmRouter router = router(new MockEnvironment()
+                .withProperty("llm.providers", "slow,fast")
+                .withProperty("llm.provider.slow.type", "stub")
+                .withProperty("llm.provider.slow.latency-ms", "40")
+                .withProperty("llm.provider.fast.type", "stub"));
+
+        for (int i = 0; i < 30; i++) {
+            router.complete(REQUEST).join();
+        }
+
+        // Each is tried until it has enough samples, then the fast one takes everything
+        assertThat((Long) providerStats(router, "slow").get("selected")).isEqualTo(LlmRouter.MIN_SAMPLES);
+        assertThat((Long) providerStats(router, "fast").get("selected")).isEqualTo(30L - LlmRouter.MIN_SAMPLES);
+        assertThat((Double) providerStats(router, "slow").get("p50Ms")).isGreaterThan(30.0);
+    }
+
+    @Test
+    void skipsProvidersWithoutQuotaAndFailsWhenNoneIsLeft() {
+        LlmRouter router = router(new MockEnvironment()
+                .withProperty("llm.providers", "small")
+                .withProperty("llm.provider.small.type", "stub")
+                .withProperty("llm.provider.small.tokens-per-minute", "150"));
+
+        router.complete(REQUEST).join();
+
+        assertThatThrownBy(() -> router.complete(REQUEST).join())
+                .hasCauseInstanceOf(UpstreamBusyException.class);
+        assertThat(providerStats(router, "small")).containsEntry("overQuota", 1L);
+        assertThat(router.getStats()).containsEntry("exhausted", 1L);
+    }
+
+    @Test
+    void providerGetsTrafficAgainOnceItsBreakerLetsTrialsThrough() throws Exception {
+        AtomicBoolean healthy = new AtomicBoolean(false);
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10);
+        upstream.createContext("/chat", exchange -> {
+            byte[] body = (healthy.get() ? "{\"choices\":[{\"message\":{\"content\":\"back\"}}]}" : "down")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(healthy.get() ? 200 : 503, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        upstream.start();
+        try {
+            // The default setup: one provider, so there is nothing to fail over to
+            LlmRouter router = router(new MockEnvironment()
+                    .withProperty("llm.providers", "groq")
+                    .withProperty("llm.provider.groq.url", "http://127.0.0.1:" + upstream.getAddress().getPort() + "/chat")
+                    .withProperty("llm.provider.groq.api-key", "test")
+                    .withProperty("groq.retry.max-attempts", "1")
+                    .withProperty("groq.breaker.minimum-calls", "1")
+                    .withProperty("groq.breaker.open-ms", "50")
+                    .withProperty("groq.breaker.half-open-calls", "1"));
+
+            assertThatThrownBy(() -> router.complete(REQUEST).join()).hasCauseInstanceOf(UpstreamHttpException.class);
+            assertThat(providerStats(router, "groq")).containsEntry("available", false);
+
+            healthy.set(true);
+            Thread.sleep(60);
+
+            assertThat(providerStats(router, "groq")).containsEntry("available", true);
+            assertThat(router.complete(REQUEST).join().path("choices").get(0).path("message").path("content").asText())
+                    .isEqualTo("back");
+            assertThat(router.complete(REQUEST).join()).isNotNull();
+            // Only the first call found no provider that could answer
+            assertThat(router.getStats()).containsEntry("exhausted", 1L);
+            assertThat(providerStats(router, "groq")).containsEntry("selected", 3L);
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    @Test
+    void rejectsUnknownProviderTypes() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("llm.providers", "odd")
+                .withProperty("llm.provider.odd.type", "carrier-pigeon");
+
+        assertThatThrownBy(() -> router(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("carrier-pigeon");
+    }
+
+    private static LlmRouter router(MockEnvironment environment) {
+        return new LlmRouter(new ObjectMapper(), environment.withProperty("llm.router.explore-ratio", "0"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> providerStats(LlmRouter router, String name) {
+        return (Map<String, Object>) ((Map<String, Object>) router.getStats().get("providers")).get(name);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.demo.service;
+
+import com.example.demo.config.MoodRollupInitializer;
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.DailyMoodRollupRepository;
+import com.example.demo.repository.UserMoodRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs H2 in MySQL mode so the native upserts execute as they would in production.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:rollups;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@Import(MoodRollupService.class)
+class MoodRollupServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MoodRollupService moodRollupService;
+
+    private User alice;
+    private User bob;
+
+    @Autowired
+    private UserMoodRollupRepository userMoodRollupRepository;
+
+    @Autowired
+    private DailyMoodRollupRepository dailyMoodRollupRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @BeforeEach
+    void setUp() {
+        moodRollupService.markReady();
+        alice = persistUser("alice@example.com");
+        bob = persistUser("bob@example.com");
+    }
+
+    @Test
+    void incrementalWritesMatchRebuildFromChats() {
+        Chat first = write(alice, "POSITIVE", 0.8);
+        write(alice, "NEGATIVE", 0.2);
+        write(bob, "NEUTRAL", 0.5);
+        moodRollupService.removeChat(alice.getId(), first.getCreatedAt(), first.getSentiment(), first.getMoodScore());
+        entityManager.remove(entityManager.find(Chat.class, first.getId()));
+        entityManager.flush();
+
+        Map<String, Object> incremental = moodRollupService.getGlobalSummary(7);
+        Map<String, Object> aliceIncremental = moodRollupService.getUserSummary(alice.getId());
+
+        moodRollupService.rebuild();
+        entityManager.clear();
+
+        assertThat(incremental.get("totalChats")).isEqualTo(2L);
+        assertThat(incremental.get("sentimentDistribution"))
+                .isEqualTo(Map.of("POSITIVE", 0L, "NEGATIVE", 1L, "NEUTRAL", 1L));
+        assertThat((Double) incremental.get("averageMoodScore")).isCloseTo(0.35, within(1e-9));
+        assertThat(aliceIncremental.get("totalChats")).isEqualTo(1L);
+
+        Map<String, Object> rebuilt = moodRollupService.getGlobalSummary(7);
+        assertThat(rebuilt.get("totalChats")).isEqualTo(incremental.get("totalChats"));
+        assertThat(rebuilt.get("sentimentDistribution")).isEqualTo(incremental.get("sentimentDistribution"));
+        assertThat((Double) moodRollupService.getGlobalSummary(7).get("averageMoodScore"))
+                .isCloseTo((Double) incremental.get("averageMoodScore"), within(1e-9));
+        assertThat(moodRollupService.getUserSummary(alice.getId()).get("sentimentDistribution"))
+                .isEqualTo(aliceIncremental.get("sentimentDistribution"));
+    }
+
+    @Test
+    void removingUserTakesTheirChatsOutOfDailyTotals() {
+        write(alice, "POSITIVE", 0.9);
+        write(bob, "NEGATIVE", 0.1);
+
+        moodRollupService.removeUser(alice.getId());
+        entityManager.clear();
+
+        Map<String, Object> summary = moodRollupService.getGlobalSummary(1);
+        assertThat(summary.get("totalChats")).isEqualTo(1L);
+        assertThat(summary.get("sentimentDistribution"))
+                .isEqualTo(Map.of("POSITIVE", 0L, "NEGATIVE", 1L, "NEUTRAL", 0L));
+        assertThat(moodRollupService.getUserSummary(alice.getId()).get("totalChats")).isEqualTo(0L);
+    }
+
+    @Test
+    void chatsFromBeforeTheRollupsAreReadFromTheChatsTableUntilRebuiltAtStartup() {
+        // A database upgraded from before the rollups: chats, but nothing recorded for them
+        MoodRollupService upgraded = new MoodRollupService(userMoodRollupRepository, dailyMoodRollupRepository, chatRepository);
+        persistChat(alice, "POSITIVE", 0.9);
+        persistChat(alice, "NEGATIVE", 0.3);
+        persistChat(bob, "NEUTRAL", 0.6);
+        entityManager.flush();
+
+        assertThat(upgraded.isReady()).isFalse();
+        assertThat(upgraded.needsRebuild()).isTrue();
+        Map<String, Object> before = upgraded.getGlobalSummary(1);
+        assertThat(before.get("totalChats")).isEqualTo(3L);
+        assertThat(upgraded.getUserSummary(alice.getId()).get("totalChats")).isEqualTo(2L);
+
+        new MoodRollupInitializer(upgraded).run(null);
+        entityManager.clear();
+
+        assertThat(upgraded.isReady()).isTrue();
+        assertThat(upgraded.needsRebuild()).isFalse();
+        assertThat(userMoodRollupRepository.count()).isEqualTo(2);
+        Map<String, Object> after = upgraded.getGlobalSummary(1);
+        assertThat(after.get("totalChats")).isEqualTo(3L);
+        assertThat(after.get("sentimentDistribution")).isEqualTo(before.get("sentimentDistribution"));
+        assertThat((Double) after.get("averageMoodScore")).isCloseTo((Double) before.get("averageMoodScore"), within(1e-9));
+        assertThat((List<?>) after.get("daily")).hasSize(1);
+        assertThat(upgraded.getUserSummary(alice.getId()).get("totalChats")).isEqualTo(2L);
+    }
+
+    private User persistUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        return entityManager.persist(user);
+    }
+
+    private Chat write(User user, String sentiment, double moodScore) {
+        Chat chat = persistChat(user, sentiment, moodScore);
+        entityManager.flush();
+        moodRollupService.recordChat(user.getId(), chat.getCreatedAt(), sentiment, moodScore);
+        return chat;
+    }
+
+    private Chat persistChat(User user, String sentiment, double moodScore) {
+        Chat chat = new Chat();
+        chat.setUser(user);
+        chat.setMessage("m");
+        chat.setResponse("r");
+        chat.setSentiment(sentiment);
+        chat.setMoodScore(moodScore);
+        return entityManager.persist(chat);
+    }
+}
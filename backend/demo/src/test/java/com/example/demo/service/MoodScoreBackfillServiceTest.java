@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import com.example.demo.repository.ChatRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs H2 in MySQL mode so the rollup upserts execute as they would in production.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:backfill;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@Import(MoodRollupService.class)
+class MoodScoreBackfillServiceTest {
+
+    private static final List<String> MESSAGES = List.of(
+            "I am so happy today",
+            "I feel lonely and hopeless",
+            "What should I cook for dinner?",
+            "I am not happy",
+            "Grateful for my friends",
+            "Work has me stressed and worried",
+            "Honestly, things are not bad");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MoodRollupService moodRollupService;
+
+    private final SentimentAnalyzer sentimentAnalyzer = new SentimentAnalyzer(new ClassPathResource("sentiment-lexicon.txt"));
+
+    @Test
+    void rescoresEveryChunkAndRebuildsTheRollups() {
+        User user = new User();
+        user.setEmail("backfill@example.com");
+        user.setPassword("x");
+        entityManager.persist(user);
+        // Stored with a stale score, and counted that way in the rollups
+        for (String message : MESSAGES) {
+            Chat chat = new Chat();
+            chat.setUser(user);
+            chat.setMessage(message);
+            chat.setResponse("ok");
+            chat.setSentiment("NEUTRAL");
+            chat.setMoodScore(0.5);
+            entityManager.persist(chat);
+            moodRollupService.recordChat(user.getId(), chat.getCreatedAt(), "NEUTRAL", 0.5);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        MoodScoreBackfillService backfill = new MoodScoreBackfillService(
+                chatRepository, sentimentAnalyzer, jdbcTemplate, transactionTemplate, moodRollupService);
+        ReflectionTestUtils.setField(backfill, "chunkSize", 3);
+        backfill.run();
+
+        Map<String, Long> expectedDistribution = new HashMap<>(Map.of("POSITIVE", 0L, "NEGATIVE", 0L, "NEUTRAL", 0L));
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT message, sentiment, mood_score FROM chats");
+        assertThat(rows).hasSize(MESSAGES.size());
+        for (Map<String, Object> row : rows) {
+            SentimentResult expected = sentimentAnalyzer.analyze((String) row.get("message"));
+            assertThat(row.get("sentiment")).as((String) row.get("message")).isEqualTo(expected.sentiment());
+            assertThat(row.get("mood_score")).as((String) row.get("message")).isEqualTo(expected.moodScore());
+            expectedDistribution.merge(expected.sentiment(), 1L, Long::sum);
+        }
+        assertThat(expectedDistribution.get("NEUTRAL")).isLessThan(MESSAGES.size());
+
+        assertThat(backfill.getStatus()).containsEntry("processed", (long) MESSAGES.size());
+        Map<String, Object> global = moodRollupService.getGlobalSummary(1);
+        assertThat(global.get("totalChats")).isEqualTo((long) MESSAGES.size());
+        assertThat(global.get("sentimentDistribution")).isEqualTo(expectedDistribution);
+        assertThat(moodRollupService.getUserSummary(user.getId()).get("sentimentDistribution"))
+                .isEqualTo(expectedDistribution);
+    }
+}
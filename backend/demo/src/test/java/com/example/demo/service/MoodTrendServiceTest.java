@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.MoodTrendPoint;
+import com.example.demo.dto.MoodTrendResponse;
+import com.example.demo.model.Chat;
+import com.example.demo.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DataJpaTest
+@Import({MoodTrendService.class, MoodRollupService.class})
+class MoodTrendServiceTest {
+
+    // A Wednesday
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 5, 15, 0, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MoodTrendService moodTrendService;
+
+    @Autowired
+    private MoodRollupService moodRollupService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("trend@example.com");
+        user.setPassword("x");
+        entityManager.persist(user);
+
+        write(DAY.plusHours(9).plusMinutes(5), "POSITIVE", 0.8);
+        write(DAY.plusHours(9).plusMinutes(40), "NEGATIVE", 0.2);
+        write(DAY.plusHours(14), "NEUTRAL", 0.5);
+        write(DAY.plusDays(1).plusHours(8), "POSITIVE", 0.9);
+        write(DAY.plusDays(6).plusHours(8), "POSITIVE", 0.7);
+        entityManager.clear();
+    }
+
+    @Test
+    void hourlyBucketsAreDenseAndGroupedByTheDatabase() {
+        MoodTrendResponse trend = moodTrendService.getUserTrend(user.getId(), "hour", DAY, DAY.plusDays(1));
+
+        assertThat(trend.getPoints()).hasSize(24);
+        MoodTrendPoint nine = trend.getPoints().get(9);
+        assertThat(nine.getBucketStart()).isEqualTo(DAY.plusHours(9));
+        assertThat(nine.getChatCount()).isEqualTo(2);
+        assertThat(nine.getAverageMoodScore()).isCloseTo(0.5, within(1e-9));
+        assertThat(trend.getPoints().get(10).getChatCount()).isZero();
+        assertThat(trend.getPoints().get(10).getAverageMoodScore()).isNull();
+        assertThat(trend.getTotalChats()).isEqualTo(3);
+    }
+
+    @Test
+    void weeksStartOnMondayAndFoldDailyRows() {
+        MoodTrendResponse trend = moodTrendService.getUserTrend(user.getId(), "WEEK", DAY, DAY.plusDays(7));
+
+        assertThat(trend.getFrom()).isEqualTo(LocalDateTime.of(2024, 5, 13, 0, 0));
+        assertThat(trend.getPoints()).extracting(MoodTrendPoint::getChatCount).containsExactly(4L, 1L);
+        assertThat(trend.getSentimentDistribution()).containsEntry("POSITIVE", 3L).containsEntry("NEGATIVE", 1L);
+    }
+
+    @Test
+    void globalDaysComeFromTheChatsTableUntilTheRollupsAreReady() {
+        // Chats written straight to the table, so the rollups are empty
+        assertThat(moodRollupService.isReady()).isFalse();
+
+        MoodTrendResponse trend = moodTrendService.getGlobalTrend("day", DAY, DAY.plusDays(7));
+
+        assertThat(trend.getPoints()).extracting(MoodTrendPoint::getChatCount)
+                .containsExactly(3L, 1L, 0L, 0L, 0L, 0L, 1L);
+        assertThat(trend.getTotalChats()).isEqualTo(5);
+    }
+
+    @Test
+    void rejectsRangesWithTooManyBuckets() {
+        assertThatThrownBy(() -> moodTrendService.getUserTrend(user.getId(), "hour", DAY.minusYears(1), DAY))
+                .hasMessageContaining("Range too large");
+        assertThatThrownBy(() -> moodTrendService.getUserTrend(user.getId(), "minute", null, null))
+                .hasMessageContaining("Unknown granularity");
+    }
+
+    private void write(LocalDateTime createdAt, String sentiment, double moodScore) {
+        Chat chat = new Chat();
+        chat.setUser(user);
+        chat.setMessage("m");
+        chat.setResponse("r");
+        chat.setSentiment(sentiment);
+        chat.setMoodScore(moodScore);
+        entityManager.persist(chat);
+        entityManager.flush();
+        // created_at is set by @PrePersist, so move the row into the past afterwards
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE chats SET created_at = ?1 WHERE id = ?2")
+                .setParameter(1, createdAt)
+                .setParameter(2, chat.getId())
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams against a local stub that answers with OpenAI-style server-sent events.
+ */
+class OpenAIServiceStreamTest {
+
+    private static final String COMPLETE_STREAM = """
+            data: {"model":"m","choices":[{"delta":{"role":"assistant"}}]}
+
+            data: {"model":"m","choices":[{"delta":{"content":"Hello"}}]}
+
+            data: {"model":"m","choices":[{"delta":{"content":" there"}}]}
+
+            data: {"model":"m","choices":[],"x_groq":{"usage":{"prompt_tokens":12,"completion_tokens":2}}}
+
+            data: [DONE]
+
+            """;
+
+    private final ConversationStore conversationStore = mock(ConversationStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private volatile String stream;
+    private volatile boolean breakOff;
+    private ServerSocket upstream;
+    private OpenAIService openAIService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        Thread.startVirtualThread(this::serve);
+
+        LlmRouter router = new LlmRouter(new ObjectMapper(), new MockEnvironment()
+                .withProperty("llm.providers", "groq")
+                .withProperty("groq.api.url", "http://127.0.0.1:" + upstream.getLocalPort() + "/chat")
+                .withProperty("groq.api.key", "test")
+                .withProperty("groq.retry.max-attempts", "1"));
+        ConversationContextBuilder contextBuilder = mock(ConversationContextBuilder.class);
+        when(contextBuilder.build(any(), any(), anyString())).thenReturn(List.of(Map.of("role", "user", "content", "hi")));
+        PromptTemplates promptTemplates = mock(PromptTemplates.class);
+        when(promptTemplates.get(any(), any()))
+                .thenReturn(new PromptTemplates.PromptTemplate("v1/NEUTRAL/default", "Be kind.", new RawValue("{}")));
+
+        openAIService = new OpenAIService(new ObjectMapper(), router, conversationStore, contextBuilder,
+                mock(ConversationSummarizer.class), promptTemplates,
+                new ChatMetrics(meterRegistry, new InMemoryConversationStore(10, 5, 1_000_000, Duration.ofMinutes(5))));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        upstream.close();
+    }
+
+    /**
+     * A bare socket rather than an HTTP server stub, so the connection can be dropped in the
+     * middle of a chunked body. A null stream answers 404.
+     */
+    private void serve() {
+        while (!upstream.isClosed()) {
+            try (Socket socket = upstream.accept()) {
+                BufferedReader request = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                int contentLength = 0;
+                for (String header = request.readLine(); header != null && !header.isEmpty(); header = request.readLine()) {
+                    if (header.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    }
+                }
+                request.skip(contentLength);
+
+                OutputStream out = socket.getOutputStream();
+                if (stream == null) {
+                    out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    continue;
+                }
+                byte[] body = stream.getBytes(StandardCharsets.UTF_8);
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nTransfer-Encoding: chunked\r\n\r\n"
+                        + Integer.toHexString(body.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                if (!breakOff) {
+                    out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                }
+                // Closing without the last chunk is the connection dropping mid-reply
+                out.flush();
+            } catch (IOException e) {
+                // Closed by tearDown
+            }
+        }
+    }
+
+    @Test
+    void handsOnContentDeltasAndRemembersTheReply() {
+        stream = COMPLETE_STREAM;
+        List<String> tokens = new ArrayList<>();
+
+        String reply = openAIService.streamChatResponse("hi", "7", "NEUTRAL", null, tokens::add);
+
+        assertThat(tokens).containsExactly("Hello", " there");
+        assertThat(reply).isEqualTo("Hello there");
+        verify(conversationStore).append("7", "hi", "Hello there");
+        assertThat(meterRegistry.get("llm.tokens").tag("type", "prompt").counter().count()).isEqualTo(12);
+    }
+
+    @Test
+    void replyThatBreaksOffIsNeitherReturnedNorRemembered() {
+        stream = COMPLETE_STREAM.substring(0, COMPLETE_STREAM.indexOf(" there"));
+        breakOff = true;
+        List<String> tokens = new ArrayList<>();
+
+        assertThatThrownBy(() -> openAIService.streamChatResponse("hi", "7", "NEUTRAL", null, tokens::add))
+                .isInstanceOf(IncompleteReplyException.class);
+
+        assertThat(tokens).containsExactly("Hello");
+        verify(conversationStore, never()).append(eq("7"), any(), any());
+    }
+
+    @Test
+    void failureBeforeAnyTokenFallsBackToACannedReply() {
+        stream = null;
+        List<String> tokens = new ArrayList<>();
+
+        String reply = openAIService.streamChatResponse("hi", "7", "NEUTRAL", null, tokens::add);
+
+        assertThat(tokens).containsExactly(reply);
+        assertThat(meterRegistry.get("chat.fallbacks").counter().count()).isEqualTo(1);
+        verify(conversationStore, never()).append(any(), any(), any());
+    }
+}
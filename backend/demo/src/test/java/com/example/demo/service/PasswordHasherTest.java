@@ -0,0 +1,81 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void hashesOnThePool() {
+        PasswordHasher hasher = hasher(new BCryptPasswordEncoder(4), 2, 4);
+
+        String hash = hasher.encode("secret");
+
+        assertThat(hasher.matches("secret", hash)).isTrue();
+        assertThat(hasher.matches("wrong", hash)).isFalse();
+        assertThat(hasher.getStats()).containsEntry("completed", 3L).containsEntry("rejected", 0L);
+    }
+
+    @Test
+    void rejectsImmediatelyWhenPoolAndQueueAreFull() throws Exception {
+        BCryptPasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        PasswordHasher hasher = hasher(blocking, 1, 1);
+
+        List<Future<String>> busy = new ArrayList<>();
+        busy.add(callers.submit(() -> hasher.encode("one")));
+        busy.add(callers.submit(() -> hasher.encode("two")));
+        while ((int) hasher.getStats().get("queueDepth") < 1) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hasher.encode("three")).isInstanceOf(TooManyRequestsException.class);
+        assertThat(System.nanoTime() - start).isLessThan(500_000_000L);
+        assertThat(hasher.getStats()).containsEntry("rejected", 1L);
+
+        release.countDown();
+        for (Future<String> future : busy) {
+            assertThat(future.get()).startsWith("$2a$");
+        }
+    }
+
+    private static PasswordHasher hasher(BCryptPasswordEncoder encoder, int threads, int queueCapacity) {
+        PasswordHasher hasher = new PasswordHasher(encoder);
+        ReflectionTestUtils.setField(hasher, "threads", threads);
+        ReflectionTestUtils.setField(hasher, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(hasher, "timeoutMs", 5_000L);
+        hasher.init();
+        return hasher;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PromptTemplatesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void buildsOnePromptPerSentimentAndMode() throws Exception {
+        PromptTemplates templates = new PromptTemplates(new ClassPathResource("prompt-templates.txt"), objectMapper);
+
+        assertThat(templates.modes()).containsExactly("supportive", "motivational", "analytical", "casual");
+
+        PromptTemplates.PromptTemplate plain = templates.get("NEGATIVE", null);
+        PromptTemplates.PromptTemplate coach = templates.get("NEGATIVE", " Motivational ");
+        assertThat(plain.text()).startsWith("You are Mood AI").contains("The user is struggling")
+                .doesNotContain("encouraging coach");
+        assertThat(coach.text()).contains("The user is struggling").contains("encouraging coach");
+        assertThat(coach.key()).isNotEqualTo(plain.key());
+
+        // Unknown modes and sentiments fall back instead of failing the chat
+        assertThat(templates.get("NEGATIVE", "pirate")).isSameAs(plain);
+        assertThat(templates.get("CONFUSED", null)).isSameAs(templates.get("NEUTRAL", null));
+
+        // The pre-serialized message lands in the request body as a normal JSON object
+        String body = objectMapper.writeValueAsString(Map.of("messages", List.of(coach.message())));
+        JsonNode message = objectMapper.readTree(body).path("messages").get(0);
+        assertThat(message.path("role").asText()).isEqualTo("system");
+        assertThat(message.path("content").asText()).isEqualTo(coach.text());
+    }
+
+    @Test
+    void reloadsChangedFileAndKeepsLastGoodTemplates(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("prompts.txt");
+        Files.writeString(file, templates("Be kind."));
+        PromptTemplates templates = new PromptTemplates(new FileSystemResource(file), objectMapper);
+        String firstKey = templates.get("POSITIVE", "casual").key();
+
+        Files.writeString(file, templates("Be very kind."));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        templates.reloadIfChanged();
+
+        assertThat(templates.get("POSITIVE", "casual").text()).contains("Be very kind.");
+        assertThat(templates.get("POSITIVE", "casual").key()).isNotEqualTo(firstKey);
+        assertThat(templates.stats()).containsEntry("version", 2);
+
+        Files.writeString(file, "[base]\nonly a base\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        templates.reloadIfChanged();
+
+        assertThat(templates.get("POSITIVE", "casual").text()).contains("Be very kind.");
+        assertThat(templates.stats()).containsEntry("version", 2);
+        assertThatThrownBy(templates::reload).hasMessageContaining("[footer]");
+    }
+
+    private static String templates(String casual) {
+        return """
+                # test templates
+                [base]
+                Hello.
+                [sentiment POSITIVE]
+                Happy.
+                [sentiment NEGATIVE]
+                Sad.
+                [sentiment NEUTRAL]
+                Calm.
+                [mode casual]
+                %s
+                [footer]
+                Bye.
+                """.formatted(casual);
+    }
+}
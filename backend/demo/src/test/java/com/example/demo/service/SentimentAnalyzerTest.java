@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentimentAnalyzerTest {
+
+    private final SentimentAnalyzer analyzer = new SentimentAnalyzer(new ClassPathResource("sentiment-lexicon.txt"));
+
+    @Test
+    void detectsPositiveAndNegativeMessages() {
+        assertThat(analyzer.analyze("I'm so happy and grateful today").sentiment()).isEqualTo("POSITIVE");
+        assertThat(analyzer.analyze("I feel lonely and hopeless").sentiment()).isEqualTo("NEGATIVE");
+        assertThat(analyzer.analyze("What should I cook for dinner?").sentiment()).isEqualTo("NEUTRAL");
+        assertThat(analyzer.analyze("   ")).isEqualTo(SentimentResult.NEUTRAL);
+        assertThat(analyzer.analyze(null)).isEqualTo(SentimentResult.NEUTRAL);
+    }
+
+    @Test
+    void matchesWholeWordsOnly() {
+        assertThat(analyzer.analyze("I played badminton").sentiment()).isEqualTo("NEUTRAL");
+        assertThat(analyzer.analyze("Goodness, a sadder sandwich").sentiment()).isEqualTo("NEUTRAL");
+        assertThat(analyzer.analyze("HAPPY!").sentiment()).isEqualTo("POSITIVE");
+    }
+
+    @Test
+    void negationFlipsNearbyTerms() {
+        assertThat(analyzer.analyze("I am not happy").sentiment()).isEqualTo("NEGATIVE");
+        assertThat(analyzer.analyze("I don't feel very good").sentiment()).isEqualTo("NEGATIVE");
+        assertThat(analyzer.analyze("Honestly, things are not bad").sentiment()).isEqualTo("POSITIVE");
+        assertThat(analyzer.analyze("It's not that, I'm just happy").sentiment()).isEqualTo("POSITIVE");
+    }
+
+    @Test
+    void negationReachesThreeWordsAhead() {
+        assertThat(analyzer.analyze("I am not really feeling happy").sentiment()).isEqualTo("NEGATIVE");
+        assertThat(analyzer.analyze("I am not at all feeling happy").sentiment()).isEqualTo("POSITIVE");
+    }
+
+    @Test
+    void prefersLongestPhrase() {
+        SentimentResult result = analyzer.analyze("I feel down");
+        assertThat(result.negativeHits()).isEqualTo(1);
+        assertThat(result.sentiment()).isEqualTo("NEGATIVE");
+    }
+
+    @Test
+    void moodScoreIsDeterministicAndFollowsIntensity() {
+        SentimentResult plain = analyzer.analyze("I am happy");
+        SentimentResult intense = analyzer.analyze("I am extremely happy");
+        SentimentResult sad = analyzer.analyze("I am sad");
+
+        assertThat(analyzer.analyze("I am happy")).isEqualTo(plain);
+        assertThat(analyzer.analyze("Where is the station?").moodScore()).isEqualTo(0.5);
+        assertThat(plain.moodScore()).isGreaterThan(0.5);
+        assertThat(intense.moodScore()).isGreaterThan(plain.moodScore());
+        assertThat(sad.moodScore()).isLessThan(0.5);
+        assertThat(analyzer.analyze("depressed hopeless miserable lonely ".repeat(20)).moodScore())
+                .isBetween(0.0, 0.01);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketLimiterTest {
+
+    @Test
+    void allowsBurstThenReportsWaitPerKey() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, Duration.ofMinutes(1), 100);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+        long wait = limiter.tryAcquire("a");
+
+        // One permit comes back every 20 seconds
+        assertThat(wait).isBetween(Duration.ofSeconds(19).toNanos(), Duration.ofSeconds(20).toNanos());
+        assertThat(limiter.tryAcquire("b")).isZero();
+
+        limiter.release("a", 1);
+        assertThat(limiter.tryAcquire("a")).isZero();
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, Duration.ofMillis(100), 100);
+        limiter.tryAcquire("a", 2);
+        assertThat(limiter.tryAcquire("a")).isPositive();
+
+        Thread.sleep(120);
+
+        assertThat(limiter.tryAcquire("a", 2)).isZero();
+    }
+
+    @Test
+    void tracksABoundedNumberOfKeys() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofMinutes(1), 32);
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("ip-" + i);
+        }
+        assertThat(limiter.trackedKeys()).isLessThanOrEqualTo(32);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamLimiterTest {
+
+    @Test
+    void admitsUpToMaxInFlightThenQueues() {
+        UpstreamLimiter limiter = new UpstreamLimiter(2, 2, 60_000);
+
+        assertThat(limiter.acquire()).isCompleted();
+        assertThat(limiter.acquire()).isCompleted();
+        CompletableFuture<Void> queued = limiter.acquire();
+
+        assertThat(queued).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getQueueDepth()).isEqualTo(1);
+        assertThat(limiter.stats()).containsEntry("acquired", 2L).containsEntry("queuedTotal", 1L);
+    }
+
+    @Test
+    void rejectsOnceTheQueueIsFull() {
+        UpstreamLimiter limiter = new UpstreamLimiter(1, 1, 60_000);
+        limiter.acquire();
+        CompletableFuture<Void> queued = limiter.acquire();
+
+        assertThat(limiter.acquire()).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(UpstreamBusyException.class);
+        assertThat(queued).isNotDone();
+        assertThat(limiter.stats()).containsEntry("rejected", 1L);
+    }
+
+    @Test
+    void queuedCallerGivesUpAfterTheQueueTimeout() {
+        UpstreamLimiter limiter = new UpstreamLimiter(1, 1, 50);
+        limiter.acquire();
+
+        assertThat(limiter.acquire()).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(UpstreamBusyException.class)
+                .withMessageContaining("Timed out");
+        assertThat(limiter.getQueueDepth()).isZero();
+        assertThat(limiter.stats()).containsEntry("timedOut", 1L);
+
+        // The slot it never got is still held by the first caller only
+        limiter.release();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void releaseHandsTheSlotToTheOldestWaiter() {
+        UpstreamLimiter limiter = new UpstreamLimiter(1, 2, 60_000);
+        limiter.acquire();
+        CompletableFuture<Void> first = limiter.acquire();
+        CompletableFuture<Void> second = limiter.acquire();
+
+        limiter.release();
+
+        assertThat(first).isCompleted();
+        assertThat(second).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getQueueDepth()).isEqualTo(1);
+        assertThat(limiter.stats()).containsEntry("acquired", 2L);
+
+        limiter.release();
+        assertThat(second).isCompleted();
+        limiter.release();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
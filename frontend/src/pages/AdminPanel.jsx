@@ -6,7 +6,10 @@ import { useNavigate } from 'react-router-dom';
 const AdminPanel = () => {
   const { isAdmin } = useAuth();
   const [users, setUsers] = useState([]);
+  const [usersCursor, setUsersCursor] = useState(null);
   const [chats, setChats] = useState([]);
+  const [chatsCursor, setChatsCursor] = useState(null);
+  const [hourlyTrend, setHourlyTrend] = useState(null);
   const [analytics, setAnalytics] = useState(null);
   const [loading, setLoading] = useState(true);
   const [activeTab, setActiveTab] = useState('overview');
@@ -23,15 +26,19 @@ const AdminPanel = () => {
   const loadAdminData = async () => {
     setLoading(true);
     try {
-      const [usersRes, chatsRes, analyticsRes] = await Promise.all([
-        adminAPI.getAllUsers(),
-        adminAPI.getAllChats(),
+      const [usersRes, chatsRes, analyticsRes, trendRes] = await Promise.all([
+        adminAPI.getUsers({ size: 50 }),
+        adminAPI.getChats({ size: 50 }),
         adminAPI.getAnalytics(),
+        adminAPI.getMoodTrends({ granularity: 'hour' }),
       ]);
 
-      setUsers(usersRes.data.data);
-      setChats(chatsRes.data.data);
+      setUsers(usersRes.data.data.items);
+      setUsersCursor(usersRes.data.data.nextCursor);
+      setChats(chatsRes.data.data.items);
+      setChatsCursor(chatsRes.data.data.nextCursor);
       setAnalytics(analyticsRes.data.data);
+      setHourlyTrend(trendRes.data.data);
     } catch (error) {
       console.error('Error loading admin data:', error);
     } finally {
@@ -39,6 +46,48 @@ const AdminPanel = () => {
     }
   };
 
+  const loadMoreUsers = async () => {
+    try {
+      const response = await adminAPI.getUsers({ size: 50, cursor: usersCursor });
+      setUsers((prev) => [...prev, ...response.data.data.items]);
+      setUsersCursor(response.data.data.nextCursor);
+    } catch (error) {
+      console.error('Error loading users:', error);
+    }
+  };
+
+  const loadMoreChats = async () => {
+    try {
+      const response = await adminAPI.getChats({ size: 50, cursor: chatsCursor });
+      setChats((prev) => [...prev, ...response.data.data.items]);
+      setChatsCursor(response.data.data.nextCursor);
+    } catch (error) {
+      console.error('Error loading chats:', error);
+    }
+  };
+
+  const handleExportChats = async () => {
+    try {
+      const response = await adminAPI.exportChats({ format: 'csv' });
+      const url = window.URL.createObjectURL(response.data);
+      const link = document.createElement('a');
+      link.href = url;
+      link.download = 'chats.csv';
+      link.click();
+      window.URL.revokeObjectURL(url);
+    } catch (error) {
+      console.error('Error exporting chats:', error);
+      alert('Failed to export chats');
+    }
+  };
+
+  const todayKey = () => {
+    const now = new Date();
+    const month = String(now.getMonth() + 1).padStart(2, '0');
+    const day = String(now.getDate()).padStart(2, '0');
+    return `${now.getFullYear()}-${month}-${day}`;
+  };
+
   const handleDeleteUser = async (userId) => {
     if (!window.confirm('Are you sure you want to delete this user?')) return;
 
@@ -100,10 +149,7 @@ const AdminPanel = () => {
           <div className="card bg-gradient-to-br from-pink-500 to-pink-600 text-white">
             <p className="text-sm opacity-90 mb-2">Active Today</p>
             <p className="text-4xl font-bold">
-              {chats.filter(chat => {
-                const today = new Date().toDateString();
-                return new Date(chat.createdAt).toDateString() === today;
-              }).length}
+              {analytics?.daily?.find((day) => day.date === todayKey())?.totalChats || 0}
             </p>
           </div>
         </div>
@@ -134,10 +180,7 @@ const AdminPanel = () => {
                   <div className="bg-gray-50 p-4 rounded-lg">
                     <p className="text-sm text-gray-600 mb-2">Recent Activity</p>
                     <p className="text-2xl font-bold text-gray-800">
-                      {chats.filter(chat => {
-                        const lastHour = new Date(Date.now() - 60 * 60 * 1000);
-                        return new Date(chat.createdAt) > lastHour;
-                      }).length} chats in the last hour
+                      {hourlyTrend?.points?.[hourlyTrend.points.length - 1]?.chatCount || 0} chats this hour
                     </p>
                   </div>
                   <div className="bg-gray-50 p-4 rounded-lg">
@@ -145,13 +188,13 @@ const AdminPanel = () => {
                     <div className="flex gap-4">
                       <div>
                         <p className="text-lg font-bold text-gray-800">
-                          {users.filter(u => u.role === 'USER').length}
+                          {analytics?.usersByRole?.USER || 0}
                         </p>
                         <p className="text-xs text-gray-600">Regular Users</p>
                       </div>
                       <div>
                         <p className="text-lg font-bold text-gray-800">
-                          {users.filter(u => u.role === 'ADMIN').length}
+                          {analytics?.usersByRole?.ADMIN || 0}
                         </p>
                         <p className="text-xs text-gray-600">Admins</p>
                       </div>
@@ -207,12 +250,22 @@ const AdminPanel = () => {
                     </tbody>
                   </table>
                 </div>
+                {usersCursor && (
+                  <button onClick={loadMoreUsers} className="btn-primary mt-4">
+                    Load more
+                  </button>
+                )}
               </div>
             )}
 
             {activeTab === 'chats' && (
               <div>
-                <h3 className="text-xl font-bold text-gray-800 mb-4">All Chats</h3>
+                <div className="flex justify-between items-center mb-4">
+                  <h3 className="text-xl font-bold text-gray-800">All Chats</h3>
+                  <button onClick={handleExportChats} className="btn-primary">
+                    Export CSV
+                  </button>
+                </div>
                 <div className="space-y-4 max-h-[600px] overflow-y-auto">
                   {chats.map((chat) => (
                     <div
@@ -221,7 +274,7 @@ const AdminPanel = () => {
                     >
                       <div className="flex justify-between items-start mb-3">
                         <div className="flex-1">
-                          <p className="text-xs text-gray-500 mb-1">User ID: {chat.user?.id}</p>
+                          <p className="text-xs text-gray-500 mb-1">User ID: {chat.userId}</p>
                           <p className="text-sm font-semibold text-gray-800 mb-1">Message:</p>
                           <p className="text-sm text-gray-600 mb-2">{chat.message}</p>
                           <p className="text-sm font-semibold text-purple-600 mb-1">Response:</p>
@@ -250,6 +303,11 @@ const AdminPanel = () => {
 </div>
 </div>
 ))}
+{chatsCursor && (
+<button onClick={loadMoreChats} className="btn-primary">
+Load more
+</button>
+)}
 </div>
 </div>
 )}
@@ -9,13 +9,23 @@ const ChatPage = () => {
   const [inputMessage, setInputMessage] = useState('');
   const [loading, setLoading] = useState(false);
   const [loadingHistory, setLoadingHistory] = useState(false);
+  const [mode, setMode] = useState('');
+  const [nextCursor, setNextCursor] = useState(null);
+  const [hasMore, setHasMore] = useState(false);
+  const [loadingEarlier, setLoadingEarlier] = useState(false);
   const messagesEndRef = useRef(null);
+  // Set when older messages are prepended, so the view stays where the user is reading
+  const keepScrollRef = useRef(false);
 
   const scrollToBottom = () => {
     messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
   };
 
   useEffect(() => {
+    if (keepScrollRef.current) {
+      keepScrollRef.current = false;
+      return;
+    }
     scrollToBottom();
   }, [messages]);
 
@@ -25,24 +35,28 @@ const ChatPage = () => {
     }
   }, []);
 
+  // A history page is newest first; the chat shows oldest first
+  const toMessages = (chats) =>
+    [...chats].reverse().flatMap((chat) => [
+      { text: chat.message, isUser: true, timestamp: chat.createdAt },
+      {
+        text: chat.response,
+        isUser: false,
+        sentiment: chat.sentiment,
+        moodScore: chat.moodScore,
+        timestamp: chat.createdAt,
+      },
+    ]);
+
   const loadChatHistory = async () => {
     setLoadingHistory(true);
     try {
       const response = await chatAPI.getChatHistory();
-      const history = response.data.data;
-      
-      const formattedMessages = history.flatMap((chat) => [
-        { text: chat.message, isUser: true, timestamp: chat.createdAt },
-        {
-          text: chat.response,
-          isUser: false,
-          sentiment: chat.sentiment,
-          moodScore: chat.moodScore,
-          timestamp: chat.createdAt,
-        },
-      ]);
-      
-      setMessages(formattedMessages.reverse());
+      const page = response.data.data;
+
+      setMessages(toMessages(page.items));
+      setNextCursor(page.nextCursor);
+      setHasMore(page.hasMore);
     } catch (error) {
       console.error('Error loading chat history:', error);
     } finally {
@@ -50,6 +64,24 @@ const ChatPage = () => {
     }
   };
 
+  const loadEarlierMessages = async () => {
+    if (!hasMore || loadingEarlier) return;
+    setLoadingEarlier(true);
+    try {
+      const response = await chatAPI.getChatHistory({ cursor: nextCursor });
+      const page = response.data.data;
+
+      keepScrollRef.current = true;
+      setMessages((prev) => [...toMessages(page.items), ...prev]);
+      setNextCursor(page.nextCursor);
+      setHasMore(page.hasMore);
+    } catch (error) {
+      console.error('Error loading earlier messages:', error);
+    } finally {
+      setLoadingEarlier(false);
+    }
+  };
+
   const handleSendMessage = async (e) => {
     e.preventDefault();
     if (!inputMessage.trim() || loading) return;
@@ -64,9 +96,9 @@ const ChatPage = () => {
     try {
       let response;
       if (isAuthenticated()) {
-        response = await chatAPI.sendMessage({ message: userMessage });
+        response = await chatAPI.sendMessage({ message: userMessage, mode: mode || undefined });
       } else {
-        response = await chatAPI.sendAnonymousMessage({ message: userMessage });
+        response = await chatAPI.sendAnonymousMessage({ message: userMessage, mode: mode || undefined });
       }
 
       const aiResponse = response.data.data;
@@ -99,15 +131,28 @@ const ChatPage = () => {
     <div className="min-h-screen flex flex-col">
       {/* Header */}
       <div className="bg-white shadow-md py-4 px-6">
-        <div className="max-w-4xl mx-auto">
-          <h1 className="text-2xl font-bold bg-gradient-to-r from-purple-600 to-blue-600 bg-clip-text text-transparent">
-            Chat with Mood AI
-          </h1>
-          <p className="text-sm text-gray-600 mt-1">
-            {isAuthenticated()
-              ? 'Your conversation is being saved'
-              : '💡 Anonymous mode - Login to save your chat history'}
-          </p>
+        <div className="max-w-4xl mx-auto flex items-center justify-between gap-4">
+          <div>
+            <h1 className="text-2xl font-bold bg-gradient-to-r from-purple-600 to-blue-600 bg-clip-text text-transparent">
+              Chat with Mood AI
+            </h1>
+            <p className="text-sm text-gray-600 mt-1">
+              {isAuthenticated()
+                ? 'Your conversation is being saved'
+                : '💡 Anonymous mode - Login to save your chat history'}
+            </p>
+          </div>
+          <select
+            value={mode}
+            onChange={(e) => setMode(e.target.value)}
+            className="border border-gray-300 rounded-lg px-3 py-2 text-sm text-gray-700"
+          >
+            <option value="">Default style</option>
+            <option value="supportive">Supportive</option>
+            <option value="motivational">Motivational</option>
+            <option value="analytical">Analytical</option>
+            <option value="casual">Casual</option>
+          </select>
         </div>
       </div>
 
@@ -152,6 +197,18 @@ const ChatPage = () => {
             </div>
           ) : (
             <>
+              {hasMore && (
+                <div className="flex justify-center">
+                  <button
+                    type="button"
+                    onClick={loadEarlierMessages}
+                    disabled={loadingEarlier}
+                    className="text-sm text-purple-600 hover:text-purple-800 font-medium px-4 py-2 rounded-full border border-purple-200 hover:bg-purple-50 transition-all duration-300 disabled:opacity-50 disabled:cursor-not-allowed"
+                  >
+                    {loadingEarlier ? 'Loading...' : 'Load earlier messages'}
+                  </button>
+                </div>
+              )}
               {messages.map((msg, index) => (
                 <MessageBubble
                   key={index}
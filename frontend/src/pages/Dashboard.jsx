@@ -27,10 +27,12 @@ const Dashboard = () => {
   const loadDashboardData = async () => {
     setLoading(true);
     try {
-      const response = await chatAPI.getChatHistory();
-      const history = response.data.data;
-      setChatHistory(history);
-      calculateStats(history);
+      const [historyResponse, trendResponse] = await Promise.all([
+        chatAPI.getChatHistory({ size: 20 }),
+        chatAPI.getMoodTrends({ granularity: 'week' }),
+      ]);
+      setChatHistory(historyResponse.data.data.items);
+      applyTrend(trendResponse.data.data);
     } catch (error) {
       console.error('Error loading dashboard data:', error);
     } finally {
@@ -38,20 +40,13 @@ const Dashboard = () => {
     }
   };
 
-  const calculateStats = (history) => {
-    const total = history.length;
-    const positive = history.filter((chat) => chat.sentiment === 'POSITIVE').length;
-    const negative = history.filter((chat) => chat.sentiment === 'NEGATIVE').length;
-    const neutral = history.filter((chat) => chat.sentiment === 'NEUTRAL').length;
-    
-    const avgMood = history.reduce((sum, chat) => sum + (chat.moodScore || 0), 0) / (total || 1);
-
+  const applyTrend = (trend) => {
     setStats({
-      totalChats: total,
-      avgMoodScore: avgMood,
-      positiveCount: positive,
-      negativeCount: negative,
-      neutralCount: neutral,
+      totalChats: trend.totalChats,
+      avgMoodScore: trend.averageMoodScore || 0,
+      positiveCount: trend.sentimentDistribution.POSITIVE,
+      negativeCount: trend.sentimentDistribution.NEGATIVE,
+      neutralCount: trend.sentimentDistribution.NEUTRAL,
     });
   };
 
@@ -46,18 +46,22 @@ export const authAPI = {
 export const chatAPI = {
   sendMessage: (data) => api.post('/chat/send', data),
   sendAnonymousMessage: (data) => api.post('/chat/anonymous', data),
-  getChatHistory: () => api.get('/chat/history'),
+  getChatHistory: (params) => api.get('/chat/history', { params }),
+  getMoodTrends: (params) => api.get('/chat/trends', { params }),
   deleteChat: (chatId) => api.delete(`/chat/${chatId}`),
 };
 
 // Admin APIs
 export const adminAPI = {
-  getAllUsers: () => api.get('/admin/users'),
-  getAllChats: () => api.get('/admin/chats'),
+  getUsers: (params) => api.get('/admin/users', { params }),
+  getChats: (params) => api.get('/admin/chats', { params }),
+  exportChats: (params) => api.get('/admin/chats/export', { params, responseType: 'blob' }),
   deleteUser: (userId) => api.delete(`/admin/users/${userId}`),
   deleteChat: (chatId) => api.delete(`/admin/chats/${chatId}`),
   getAnalytics: () => api.get('/admin/analytics'),
   getUserAnalytics: (userId) => api.get(`/admin/analytics/user/${userId}`),
+  getMoodTrends: (params) => api.get('/admin/analytics/trends', { params }),
+  getUserMoodTrends: (userId, params) => api.get(`/admin/analytics/user/${userId}/trends`, { params }),
 };
 
 export default api;
\ No newline at end of file